@@ -0,0 +1,4 @@
+#!/bin/sh
+# Lets the replica service of docker-compose.yml stream WAL from this server.
+# Only runs when the data directory is initialized, i.e. on a fresh volume.
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
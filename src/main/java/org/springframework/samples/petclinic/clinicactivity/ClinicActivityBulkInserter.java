@@ -0,0 +1,171 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Bulk insert path for databases without COPY (H2, MySQL, HSQLDB). Rows are sent as
+ * multi-row {@code INSERT ... VALUES (...),(...)} statements, so one round trip and one
+ * statement execution carries many rows, and the work is committed in chunks instead of
+ * one transaction spanning the whole load.
+ * <p>
+ * The number of rows per statement is tuned while loading: after every chunk the measured
+ * insert throughput is compared with the previous chunk and the statement size keeps
+ * growing (or shrinking) while that improves throughput, and turns around when it stops.
+ */
+class ClinicActivityBulkInserter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicActivityBulkInserter.class);
+
+    static final int MIN_ROWS_PER_STATEMENT = 50;
+    // 5 parameters per row; keeps statements well below MySQL's 65,535 placeholder limit
+    static final int MAX_ROWS_PER_STATEMENT = 4_000;
+    private static final double IMPROVEMENT_THRESHOLD = 1.05;
+
+    private static final String INSERT_PREFIX =
+        "INSERT INTO clinic_activity_logs (activity_type, numeric_value, event_timestamp, status_flag, payload) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+    private final int commitRows;
+    private int rowsPerStatement;
+    private boolean growing = true;
+    private double lastRowsPerSecond;
+
+    /**
+     * @param initialRowsPerStatement statement size the tuning starts from
+     * @param commitRows rows written per transaction; also the measuring window for tuning
+     */
+    ClinicActivityBulkInserter(DataSource dataSource, int initialRowsPerStatement, int commitRows) {
+        this.dataSource = dataSource;
+        this.rowsPerStatement = clamp(initialRowsPerStatement);
+        this.commitRows = Math.max(1, commitRows);
+    }
+
+    /**
+     * Writes all rows of a single-partition progress from the generator.
+     */
+    void insert(PopulationProgress progress, ClinicActivityRowGenerator generator,
+                ClinicActivityCounters counters) throws SQLException {
+        insert(progress, 0, generator, counters);
+    }
+
+    /**
+     * Writes the rows of the given partition of the progress from the generator, on a
+     * connection of its own. Chunks that were committed before a failure or cancellation
+     * stay in the table.
+     */
+    void insert(PopulationProgress progress, int partition, ClinicActivityRowGenerator generator,
+                ClinicActivityCounters counters) throws SQLException {
+        int totalRows = progress.getPartitionRows(partition);
+        ClinicActivityCounters.Batch counts = new ClinicActivityCounters.Batch();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                int written = 0;
+                while (written < totalRows) {
+                    int chunkRows = Math.min(commitRows, totalRows - written);
+                    long chunkStart = System.nanoTime();
+                    long insertNanos = insertChunk(connection, chunkRows, progress, partition, generator, counts);
+                    connection.commit();
+                    counters.add(counts);
+                    written += chunkRows;
+                    tune(chunkRows, insertNanos);
+                    if (logger.isInfoEnabled()) {
+                        logger.info("Bulk inserted {} / {} clinic activity logs of partition {} ({} ms for last chunk, {} rows per statement)...",
+                            written, totalRows, partition, (System.nanoTime() - chunkStart) / 1_000_000, rowsPerStatement);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    int getRowsPerStatement() {
+        return rowsPerStatement;
+    }
+
+    /**
+     * @return nanoseconds spent executing statements, excluding row generation
+     */
+    private long insertChunk(Connection connection, int chunkRows, PopulationProgress progress, int partition,
+                             ClinicActivityRowGenerator generator, ClinicActivityCounters.Batch counts) throws SQLException {
+        int statementRows = Math.min(rowsPerStatement, chunkRows);
+        long insertNanos = 0;
+        PreparedStatement statement = connection.prepareStatement(insertSql(statementRows));
+        try {
+            int remaining = chunkRows;
+            while (remaining > 0) {
+                progress.checkNotCancelled();
+                if (remaining < statementRows) {
+                    // last, shorter statement of the chunk
+                    statement.close();
+                    statementRows = remaining;
+                    statement = connection.prepareStatement(insertSql(statementRows));
+                }
+                int index = 1;
+                for (int row = 0; row < statementRows; row++) {
+                    generator.next();
+                    statement.setString(index++, generator.getActivityType());
+                    statement.setInt(index++, generator.getNumericValue());
+                    statement.setTimestamp(index++, generator.getEventTimestamp());
+                    statement.setBoolean(index++, generator.isStatusFlag());
+                    statement.setString(index++, generator.getPayload().toString());
+                    counts.record(generator.getActivityTypeIndex(), generator.getNumericValue());
+                }
+                long start = System.nanoTime();
+                statement.executeUpdate();
+                insertNanos += System.nanoTime() - start;
+                progress.record(partition, statementRows);
+                remaining -= statementRows;
+            }
+        } finally {
+            statement.close();
+        }
+        return insertNanos;
+    }
+
+    // Hill climbing on rows per statement: keep moving in the same direction while
+    // throughput improves noticeably, otherwise reverse.
+    private void tune(int chunkRows, long insertNanos) {
+        if (insertNanos <= 0) {
+            return;
+        }
+        double rowsPerSecond = chunkRows * 1_000_000_000.0 / insertNanos;
+        if (lastRowsPerSecond > 0 && rowsPerSecond < lastRowsPerSecond * IMPROVEMENT_THRESHOLD) {
+            growing = !growing;
+        }
+        lastRowsPerSecond = rowsPerSecond;
+        int next = clamp(growing ? rowsPerStatement * 2 : rowsPerStatement / 2);
+        if (next == rowsPerStatement) {
+            growing = !growing;
+        }
+        rowsPerStatement = next;
+    }
+
+    private static int clamp(int rows) {
+        return Math.max(MIN_ROWS_PER_STATEMENT, Math.min(MAX_ROWS_PER_STATEMENT, rows));
+    }
+
+    static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDERS.length() + 1));
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.toString();
+    }
+}
@@ -1,84 +1,222 @@
 package org.springframework.samples.petclinic.clinicactivity;
 
 import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
 import io.opentelemetry.context.Scope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.samples.petclinic.model.ClinicActivityLog;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequestMapping("/api/clinic-activity")
 public class ClinicActivityController implements InitializingBean {
 
     private static final Logger logger = LoggerFactory.getLogger(ClinicActivityController.class);
+    private static final int MAX_WORKLOAD_SECONDS = 3600;
+    private static final int MAX_WORKLOAD_IN_FLIGHT = 200;
+    private static final int MAX_SIMULATED_CONCURRENCY = 64;
+    static final String SIMULATED_QUERY_HISTOGRAM = "clinic_activity.simulated_query.duration";
+    private static final AttributeKey<String> QUERY_TYPE = AttributeKey.stringKey("query.type");
 
     private final ClinicActivityDataService dataService;
+    private final PopulationJobService jobService;
+    private final ClinicActivitySchemaManager schemaManager;
+    private final ClinicActivityQueryService queryService;
     private final ClinicActivityLogRepository repository;
-    private final JdbcTemplate jdbcTemplate;
+    private final ClinicActivityRollupService rollupService;
+    private final ClinicActivitySearchService searchService;
+    private final WorkloadEngine workloadEngine;
 
     @Autowired
     private OpenTelemetry openTelemetry;
 
     private Tracer otelTracer;
 
+    private DoubleHistogram simulatedQueryDuration;
+
     @Autowired
     public ClinicActivityController(ClinicActivityDataService dataService,
+                                    PopulationJobService jobService,
+                                    ClinicActivitySchemaManager schemaManager,
+                                    ClinicActivityQueryService queryService,
                                     ClinicActivityLogRepository repository,
-                                    JdbcTemplate jdbcTemplate) {
+                                    ClinicActivityRollupService rollupService,
+                                    ClinicActivitySearchService searchService,
+                                    WorkloadEngine workloadEngine) {
         this.dataService = dataService;
+        this.jobService = jobService;
+        this.schemaManager = schemaManager;
+        this.queryService = queryService;
         this.repository = repository;
-        this.jdbcTemplate = jdbcTemplate;
+        this.rollupService = rollupService;
+        this.searchService = searchService;
+        this.workloadEngine = workloadEngine;
     }
 
     @Override
     public void afterPropertiesSet() throws Exception {
         this.otelTracer = openTelemetry.getTracer("ClinicActivityController");
+        this.simulatedQueryDuration = openTelemetry.getMeter("ClinicActivityController")
+            .histogramBuilder(SIMULATED_QUERY_HISTOGRAM)
+            .setDescription("Latency of the operations of run-simulated-queries")
+            .setUnit("ms")
+            .build();
     }
 
-	// This ep is here to throw error
 	@GetMapping("active-errors-ratio")
-	public int getActiveErrorsRatio() {
+	public double getActiveErrorsRatio() {
 		return dataService.getActiveLogsRatio("errors");
 	}
 
 	@PostMapping("/populate-logs")
-    public ResponseEntity<String> populateData(@RequestParam(name = "count", defaultValue = "6000000") int count) {
+    public ResponseEntity<?> populateData(@RequestParam(name = "count", defaultValue = "6000000") int count,
+                                          @RequestParam(name = "parallelism", required = false) Integer parallelism,
+                                          @RequestParam(name = "format", defaultValue = "csv") String format,
+                                          @RequestParam(name = "seed", required = false) Long seed) {
         logger.info("Received request to populate {} clinic activity logs.", count);
-        if (count <= 0) {
-            return ResponseEntity.badRequest().body("Count must be a positive integer.");
-        }
-        try {
-            dataService.populateData(count);
-            return ResponseEntity.ok("Successfully initiated population of " + count + " clinic activity logs.");
-        } catch (Exception e) {
-            logger.error("Error during clinic activity log population", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error during data population: " + e.getMessage());
-        }
+        return submitPopulationJob(null, false, count, parallelism, format, seed);
     }
 
+    @GetMapping(value = "/jobs", produces = "application/json")
+    public List<PopulationJob> getJobs() {
+        return jobService.getJobs();
+    }
+
+    @GetMapping(value = "/jobs/{id}", produces = "application/json")
+    public ResponseEntity<PopulationJob> getJob(@PathVariable("id") String id) {
+        PopulationJob job = jobService.getJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping(value = "/jobs/{id}", produces = "application/json")
+    public ResponseEntity<PopulationJob> cancelJob(@PathVariable("id") String id) {
+        PopulationJob job = jobService.cancel(id);
+        return job != null ? ResponseEntity.accepted().body(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * @param fields comma separated columns to return (see {@link ClinicActivityQueryService#COLUMNS}),
+     * all columns if omitted
+     */
     @GetMapping(value = "/query-logs", produces = "application/json")
-    public List<Map<String, Object>> getLogs(
-            @RequestParam(name = "repetitions", defaultValue = "1") int repetitions) {
+    public ResponseEntity<?> getLogs(
+            @RequestParam(name = "repetitions", defaultValue = "1") int repetitions,
+            @RequestParam(name = "fields", required = false) String fields) {
         int numericValueToTest = 50000;
-        String sql = "SELECT id, activity_type, numeric_value, event_timestamp, status_flag, payload FROM clinic_activity_logs WHERE numeric_value = ?";
+        List<String> columns;
+        try {
+            columns = ClinicActivityQueryService.parseFields(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         List<Map<String, Object>> lastResults = null;
         for (int i = 0; i < repetitions; i++) {
-            lastResults = jdbcTemplate.queryForList(sql, numericValueToTest);
+            lastResults = queryService.findLogs(numericValueToTest, columns);
+        }
+        return ResponseEntity.ok(lastResults);
+    }
+
+    /**
+     * Keyset-paginated variant of {@code query-logs}: pass the {@code nextAfterId} of a page
+     * as {@code after_id} to get the following one.
+     */
+    @GetMapping(value = "/query-logs/page", produces = "application/json")
+    public ResponseEntity<?> getLogsPage(@RequestParam(name = "numeric_value", defaultValue = "50000") int numericValue,
+                                         @RequestParam(name = "after_id", required = false) Integer afterId,
+                                         @RequestParam(name = "limit", defaultValue = "100") int limit,
+                                         @RequestParam(name = "fields", required = false) String fields) {
+        if (limit <= 0 || limit > ClinicActivityQueryService.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("Limit must be between 1 and " + ClinicActivityQueryService.MAX_PAGE_SIZE + ".");
+        }
+        try {
+            return ResponseEntity.ok(queryService.findPage(numericValue, afterId, limit,
+                ClinicActivityQueryService.parseFields(fields)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Criteria search as in {@link ClinicActivityLogRepository#findByComplexCriteria}, paged by
+     * {@code (after_timestamp, after_id)}, which are given both or neither; {@code slices} above 1
+     * splits the time range into sub-ranges that are queried in parallel.
+     */
+    @GetMapping(value = "/logs/search", produces = "application/json")
+    public ResponseEntity<?> searchLogs(
+            @RequestParam(name = "activity_type") String activityType,
+            @RequestParam(name = "min_value", defaultValue = "1") int minNumericValue,
+            @RequestParam(name = "max_value", defaultValue = "100000") int maxNumericValue,
+            @RequestParam(name = "start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(name = "end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(name = "status_flag", defaultValue = "true") boolean statusFlag,
+            @RequestParam(name = "after_timestamp", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterTimestamp,
+            @RequestParam(name = "after_id", required = false) Integer afterId,
+            @RequestParam(name = "limit", defaultValue = "100") int limit,
+            @RequestParam(name = "include_payload", defaultValue = "false") boolean includePayload,
+            @RequestParam(name = "slices", defaultValue = "1") int slices) {
+        if (limit <= 0 || limit > ClinicActivitySearchService.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("Limit must be between 1 and " + ClinicActivitySearchService.MAX_PAGE_SIZE + ".");
+        }
+        if (slices <= 0 || slices > searchService.getMaxSlices()) {
+            return ResponseEntity.badRequest().body("Slices must be between 1 and " + searchService.getMaxSlices() + ".");
+        }
+        if (!start.isBefore(end)) {
+            return ResponseEntity.badRequest().body("'start' must be before 'end'.");
+        }
+        if ((afterTimestamp == null) != (afterId == null)) {
+            // with only half of the key the first page would be returned again
+            return ResponseEntity.badRequest().body("'after_timestamp' and 'after_id' must be given together.");
         }
-        return lastResults;
+        ClinicActivityCriteria criteria = new ClinicActivityCriteria(activityType, minNumericValue, maxNumericValue,
+            start, end, statusFlag);
+        return ResponseEntity.ok(searchService.search(criteria, afterTimestamp, afterId, limit, includePayload, slices));
+    }
+
+    /**
+     * Streams all rows of {@code query-logs} as newline-delimited JSON.
+     */
+    @GetMapping("/query-logs/stream")
+    public ResponseEntity<?> streamLogs(@RequestParam(name = "numeric_value", defaultValue = "50000") int numericValue,
+                                        @RequestParam(name = "fields", required = false) String fields) {
+        List<String> columns;
+        try {
+            columns = ClinicActivityQueryService.parseFields(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+        StreamingResponseBody body = out -> queryService.streamLogs(numericValue, columns, out);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(body);
     }
 
     @DeleteMapping("/cleanup-logs")
@@ -93,74 +231,234 @@ public class ClinicActivityController implements InitializingBean {
         }
     }
 
-    @GetMapping("/run-simulated-queries")
-    public ResponseEntity<String> runSimulatedQueries(
+    /**
+     * Runs {@code repetitions} simulated operations for each of {@code uniqueQueriesCount}
+     * query types, {@code concurrency} at a time, under one parent span per type. Every
+     * operation's latency is recorded in the {@value #SIMULATED_QUERY_HISTOGRAM} histogram
+     * metric with a {@code query.type} attribute, and summarized in the response.
+     */
+    @GetMapping(value = "/run-simulated-queries", produces = "application/json")
+    public ResponseEntity<?> runSimulatedQueries(
 		@RequestParam(name = "uniqueQueriesCount", defaultValue = "3") int uniqueQueriesCount,
-		@RequestParam(name = "repetitions", defaultValue = "100") int repetitions
+		@RequestParam(name = "repetitions", defaultValue = "100") int repetitions,
+		@RequestParam(name = "concurrency", defaultValue = "1") int concurrency
 	) {
-        long startTime = System.currentTimeMillis();
-        int totalOperations = 0;
-
-        for (int queryTypeIndex = 0; queryTypeIndex < uniqueQueriesCount; queryTypeIndex++) {
-            char queryTypeChar = (char) ('A' + queryTypeIndex);
-            String parentSpanName = "Batch_Type" + queryTypeChar;
-            Span typeParentSpan = otelTracer.spanBuilder(parentSpanName).startSpan();
-
-            try (Scope scope = typeParentSpan.makeCurrent()) {
-                for (int execution = 1; execution <= repetitions; execution++) {
-                    String operationName = "SimulatedClinicQuery_Type" + queryTypeChar;
-                    performObservableOperation(operationName);
-                    totalOperations++;
+        if (uniqueQueriesCount <= 0 || uniqueQueriesCount > 26) {
+            return ResponseEntity.badRequest().body("uniqueQueriesCount must be between 1 and 26.");
+        }
+        if (repetitions <= 0 || repetitions > 100_000) {
+            return ResponseEntity.badRequest().body("Repetitions must be between 1 and 100,000.");
+        }
+        if (concurrency <= 0 || concurrency > MAX_SIMULATED_CONCURRENCY) {
+            return ResponseEntity.badRequest().body("Concurrency must be between 1 and " + MAX_SIMULATED_CONCURRENCY + ".");
+        }
+        long startTime = System.nanoTime();
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        LatencyHistogram overall = new LatencyHistogram();
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = concurrency > 1 ? Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "SimulatedQuery-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        // parent spans still open; with an executor they end once all of their operations are done
+        List<Span> typeParentSpans = new ArrayList<>();
+        try {
+            List<Future<?>> operations = new ArrayList<>();
+            for (int queryTypeIndex = 0; queryTypeIndex < uniqueQueriesCount; queryTypeIndex++) {
+                char queryTypeChar = (char) ('A' + queryTypeIndex);
+                String queryType = "Type" + queryTypeChar;
+                String parentSpanName = "Batch_Type" + queryTypeChar;
+                String operationName = "SimulatedClinicQuery_Type" + queryTypeChar;
+                Attributes attributes = Attributes.of(QUERY_TYPE, queryType);
+                LatencyHistogram typeLatencies = new LatencyHistogram();
+                latencies.put(queryType, typeLatencies);
+                Span typeParentSpan = otelTracer.spanBuilder(parentSpanName).startSpan();
+                typeParentSpans.add(typeParentSpan);
+
+                try (Scope scope = typeParentSpan.makeCurrent()) {
+                    for (int execution = 1; execution <= repetitions; execution++) {
+                        Runnable operation = () -> {
+                            long micros = performObservableOperation(operationName);
+                            simulatedQueryDuration.record(micros / 1000.0, attributes);
+                            typeLatencies.record(micros);
+                            overall.record(micros);
+                        };
+                        if (executor != null) {
+                            // carries the parent span over to the worker thread
+                            operations.add(executor.submit(Context.current().wrap(operation)));
+                        } else {
+                            operation.run();
+                        }
+                    }
+                }
+                if (executor == null) {
+                    typeParentSpans.remove(typeParentSpan);
+                    typeParentSpan.end();
                 }
-            } finally {
-                typeParentSpan.end();
             }
+            for (Future<?> operation : operations) {
+                operation.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Interrupted while running simulated queries.");
+        } catch (ExecutionException e) {
+            logger.error("Error during simulated queries", e.getCause());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error during simulated queries: " + e.getCause().getMessage());
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            typeParentSpans.forEach(Span::end);
         }
 
-        long endTime = System.currentTimeMillis();
-        String message = String.format("Executed %d simulated clinic query operations in %d ms.", totalOperations, (endTime - startTime));
-        logger.info(message);
-        return ResponseEntity.ok(message);
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startTime) / 1_000_000);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("totalOperations", overall.getCount());
+        summary.put("concurrency", concurrency);
+        summary.put("elapsedMillis", elapsedMillis);
+        summary.put("operationsPerSecond", overall.getCount() * 1000.0 / elapsedMillis);
+        summary.put("latency", overall.summary());
+        Map<String, Object> byType = new LinkedHashMap<>();
+        latencies.forEach((queryType, histogram) -> byType.put(queryType, histogram.summary()));
+        summary.put("latencyByType", byType);
+        logger.info("Executed {} simulated clinic query operations in {} ms with concurrency {}.",
+            overall.getCount(), elapsedMillis, concurrency);
+        return ResponseEntity.ok(summary);
     }
 
 	@PostMapping("/recreate-and-populate-logs")
-	public ResponseEntity<String> recreateAndPopulateLogs(@RequestParam(name = "count", defaultValue = "6000000") int count) {
-		logger.info("Received request to recreate and populate {} clinic activity logs.", count);
+	public ResponseEntity<?> recreateAndPopulateLogs(@RequestParam(name = "count", defaultValue = "6000000") int count,
+													 @RequestParam(name = "parallelism", required = false) Integer parallelism,
+													 @RequestParam(name = "format", defaultValue = "csv") String format,
+													 @RequestParam(name = "seed", required = false) Long seed,
+													 @RequestParam(name = "schema", required = false) String schema,
+													 @RequestParam(name = "reload", defaultValue = "false") boolean reload) {
+		logger.info("Received request to recreate and populate {} clinic activity logs (reload: {}).", count, reload);
+		ClinicActivitySchemaMode schemaMode;
+		try {
+			schemaMode = schema != null ? ClinicActivitySchemaMode.fromParameter(schema) : schemaManager.getDefaultMode();
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		if (reload && schemaMode == ClinicActivitySchemaMode.PARTITIONED) {
+			return ResponseEntity.badRequest().body("Reload is not supported for the partitioned schema mode.");
+		}
+		return submitPopulationJob(schemaMode, reload, count, parallelism, format, seed);
+	}
+
+	/**
+	 * Builds the query indexes on the current data and reports the probe query latency
+	 * before and after.
+	 */
+	@PostMapping(value = "/indexes", produces = "application/json")
+	public ResponseEntity<?> createIndexes() {
+		logger.info("Received request to create clinic activity log indexes.");
+		try {
+			Map<String, Object> report = new LinkedHashMap<>();
+			report.put("latencyBeforeMillis", schemaManager.measureQueryLatency());
+			long startTime = System.currentTimeMillis();
+			report.put("createdIndexes", schemaManager.createIndexes());
+			report.put("buildMillis", System.currentTimeMillis() - startTime);
+			report.put("latencyAfterMillis", schemaManager.measureQueryLatency());
+			return ResponseEntity.ok(report);
+		} catch (Exception e) {
+			logger.error("Error during clinic activity log index creation", e);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error during index creation: " + e.getMessage());
+		}
+	}
+
+	@GetMapping(value = "/indexes", produces = "application/json")
+	public Map<String, Object> getIndexUsage() {
+		return schemaManager.getIndexUsage();
+	}
+
+	/**
+	 * Pre-aggregated buckets between {@code from} (inclusive) and {@code to} (exclusive),
+	 * by default the last 7 days up to now.
+	 */
+	@GetMapping(value = "/rollups", produces = "application/json")
+	public ResponseEntity<?> getRollups(
+			@RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+			@RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+			@RequestParam(name = "granularity", defaultValue = "hour") String granularity,
+			@RequestParam(name = "activity_type", required = false) String activityType) {
+		ClinicActivityRollupService.Granularity rollupGranularity;
+		try {
+			rollupGranularity = ClinicActivityRollupService.Granularity.fromParameter(granularity);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		LocalDateTime rangeEnd = to != null ? to : LocalDateTime.now();
+		LocalDateTime rangeStart = from != null ? from : rangeEnd.minusDays(7);
+		if (!rangeStart.isBefore(rangeEnd)) {
+			return ResponseEntity.badRequest().body("'from' must be before 'to'.");
+		}
+		return ResponseEntity.ok(rollupService.findBuckets(rollupGranularity, rangeStart, rangeEnd, activityType));
+	}
+
+	/**
+	 * Rebuilds the rollups from the whole log table, e.g. after loading rows by other means.
+	 */
+	@PostMapping(value = "/rollups/refresh", produces = "application/json")
+	public ResponseEntity<?> refreshRollups() {
+		logger.info("Received request to refresh clinic activity rollups.");
+		try {
+			long startTime = System.currentTimeMillis();
+			long rolledUp = rollupService.refresh();
+			Map<String, Object> report = new LinkedHashMap<>();
+			report.put("rolledUpIds", rolledUp);
+			report.put("refreshMillis", System.currentTimeMillis() - startTime);
+			return ResponseEntity.ok(report);
+		} catch (Exception e) {
+			logger.error("Error during clinic activity rollup refresh", e);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error during rollup refresh: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Validates the population parameters and queues the job; the response is
+	 * {@code 202 Accepted} with the job, which can then be polled under {@code /jobs/{id}}.
+	 */
+	private ResponseEntity<?> submitPopulationJob(ClinicActivitySchemaMode schemaMode, boolean reload, int count, Integer parallelism,
+												  String format, Long seed) {
 		if (count <= 0) {
 			return ResponseEntity.badRequest().body("Count must be a positive integer.");
 		}
+		if (parallelism != null && parallelism <= 0) {
+			return ResponseEntity.badRequest().body("Parallelism must be a positive integer.");
+		}
+		ClinicActivityCopyFormat copyFormat;
 		try {
-			// Drop the table
-			jdbcTemplate.execute("DROP TABLE IF EXISTS clinic_activity_logs");
-			logger.info("Table 'clinic_activity_logs' dropped successfully.");
-
-			// Recreate the table
-			String createTableSql = "CREATE TABLE clinic_activity_logs (" +
-				"id SERIAL PRIMARY KEY," +
-				"activity_type VARCHAR(255)," +
-				"numeric_value INTEGER," +
-				"event_timestamp TIMESTAMP," +
-				"status_flag BOOLEAN," +
-				"payload TEXT" +
-				")";
-			jdbcTemplate.execute(createTableSql);
-			logger.info("Table 'clinic_activity_logs' created successfully.");
-
-			// Populate data
-			dataService.populateData(count);
-			return ResponseEntity.ok("Successfully recreated and initiated population of " + count + " clinic activity logs.");
-		} catch (Exception e) {
-			logger.error("Error during clinic activity log recreation and population", e);
-			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error during data recreation and population: " + e.getMessage());
+			copyFormat = ClinicActivityCopyFormat.fromParameter(format);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		try {
+			PopulationJob job = jobService.submit(schemaMode, reload, count, new PopulationOptions(
+				parallelism != null ? parallelism : dataService.getDefaultParallelism(), copyFormat, seed));
+			return ResponseEntity.accepted()
+				.location(URI.create("/api/clinic-activity/jobs/" + job.getId()))
+				.body(job);
+		} catch (RejectedExecutionException e) {
+			logger.warn("Rejected clinic activity population request, job queue is full.");
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.body("Too many population jobs are queued or running, try again later.");
 		}
 	}
 
-	@PostMapping("/io-intensive-load")
-	public ResponseEntity<String> createIOIntensiveLoad(@RequestParam(name = "duration", defaultValue = "5") int durationMinutes,
-														@RequestParam(name = "threads", defaultValue = "6") int numThreads,
-														@RequestParam(name = "limit", defaultValue = "400000") int limit) {
-		logger.warn("Received request to create I/O INTENSIVE LOAD for {} minutes with {} threads and {} limit - This will MAX OUT disk I/O operations!",
-			durationMinutes, numThreads, limit);
+	/**
+	 * Random-sample scans at a fixed rate, now run by {@link WorkloadEngine}: the request
+	 * returns right away and the run is followed under {@code /workload}.
+	 */
+	@PostMapping(value = "/io-intensive-load", produces = "application/json")
+	public ResponseEntity<?> createIOIntensiveLoad(@RequestParam(name = "duration", defaultValue = "5") int durationMinutes,
+												   @RequestParam(name = "threads", defaultValue = "6") int numThreads,
+												   @RequestParam(name = "limit", defaultValue = "400000") int limit,
+												   @RequestParam(name = "qps", defaultValue = "10") double qps) {
+		logger.warn("Received request to create I/O INTENSIVE LOAD for {} minutes with {} threads, {} limit and {} QPS",
+			durationMinutes, numThreads, limit, qps);
 		if (durationMinutes <= 0) {
 			return ResponseEntity.badRequest().body("Duration must be a positive integer.");
 		}
@@ -173,22 +471,64 @@ public class ClinicActivityController implements InitializingBean {
 		if (numThreads > 20) {
 			return ResponseEntity.badRequest().body("Too many threads for I/O intensive load - maximum 20 to prevent system crash.");
 		}
-		if (limit <= 0) {
-			return ResponseEntity.badRequest().body("Limit must be a positive integer.");
+		// limit and qps are capped by WorkloadSpec, like for /workload
+		return startWorkload(qps, Duration.ofMinutes(durationMinutes), numThreads,
+			Map.of(WorkloadQuery.SAMPLE, 1), limit, "512MB");
+	}
+
+	/**
+	 * Starts an open-loop workload.
+	 * @param mix weighted queries, e.g. {@code point:5,range:3,aggregate:1,sample:1}
+	 */
+	@PostMapping(value = "/workload", produces = "application/json")
+	public ResponseEntity<?> startWorkload(@RequestParam(name = "qps", defaultValue = "50") double qps,
+										   @RequestParam(name = "duration", defaultValue = "60") int durationSeconds,
+										   @RequestParam(name = "max_in_flight", defaultValue = "16") int maxInFlight,
+										   @RequestParam(name = "mix", defaultValue = "point:5,range:3,aggregate:1") String mix,
+										   @RequestParam(name = "limit", defaultValue = "1000") int limit,
+										   @RequestParam(name = "work_mem", required = false) String workMem) {
+		if (durationSeconds <= 0 || durationSeconds > MAX_WORKLOAD_SECONDS) {
+			return ResponseEntity.badRequest().body("Duration must be between 1 and " + MAX_WORKLOAD_SECONDS + " seconds.");
 		}
-		if (limit > 1000000) {
-			return ResponseEntity.badRequest().body("Limit too high for I/O intensive load - maximum 1,000,000 to prevent excessive resource usage.");
+		if (maxInFlight > MAX_WORKLOAD_IN_FLIGHT) {
+			return ResponseEntity.badRequest().body("At most " + MAX_WORKLOAD_IN_FLIGHT + " queries can be in flight.");
 		}
 		try {
-			dataService.createIOIntensiveLoad(durationMinutes, numThreads, limit);
-			return ResponseEntity.ok("Successfully completed I/O INTENSIVE LOAD for " + durationMinutes + " minutes with " + numThreads + " threads and " + limit + " limit - Disk I/O was maxed out!");
-		} catch (Exception e) {
-			logger.error("Error during I/O intensive load", e);
-			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error during I/O intensive load: " + e.getMessage());
+			return startWorkload(qps, Duration.ofSeconds(durationSeconds), maxInFlight, WorkloadSpec.parseMix(mix), limit, workMem);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	private ResponseEntity<?> startWorkload(double qps, Duration duration, int maxInFlight, Map<WorkloadQuery, Integer> mix,
+											int limit, String workMem) {
+		try {
+			WorkloadRun run = workloadEngine.start(new WorkloadSpec(qps, duration, maxInFlight, mix, limit, workMem));
+			return ResponseEntity.accepted().location(URI.create("/api/clinic-activity/workload")).body(run);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		} catch (IllegalStateException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
 		}
 	}
 
-    private void performObservableOperation(String operationName) {
+	@GetMapping(value = "/workload", produces = "application/json")
+	public ResponseEntity<WorkloadRun> getWorkload() {
+		WorkloadRun run = workloadEngine.getCurrentRun();
+		return run != null ? ResponseEntity.ok(run) : ResponseEntity.notFound().build();
+	}
+
+	@DeleteMapping(value = "/workload", produces = "application/json")
+	public ResponseEntity<WorkloadRun> stopWorkload() {
+		WorkloadRun run = workloadEngine.stop();
+		return run != null ? ResponseEntity.accepted().body(run) : ResponseEntity.notFound().build();
+	}
+
+    /**
+     * @return the latency of the operation in microseconds
+     */
+    private long performObservableOperation(String operationName) {
+        long start = System.nanoTime();
         Span span = otelTracer.spanBuilder(operationName)
             .setSpanKind(SpanKind.CLIENT)
             .setAttribute("db.system", "postgresql")
@@ -206,5 +546,6 @@ public class ClinicActivityController implements InitializingBean {
         } finally {
             span.end();
         }
+        return (System.nanoTime() - start) / 1_000;
     }
 }
@@ -0,0 +1,33 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.util.Locale;
+
+/**
+ * Wire format used when streaming clinic activity logs through PostgreSQL COPY.
+ */
+public enum ClinicActivityCopyFormat {
+
+    /** Text rows with quoted fields; the server parses every value. */
+    CSV("csv"),
+
+    /** PostgreSQL binary tuples; values are sent in their on-disk representation. */
+    BINARY("binary");
+
+    private final String copyOption;
+
+    ClinicActivityCopyFormat(String copyOption) {
+        this.copyOption = copyOption;
+    }
+
+    String copySql(String table) {
+        return "COPY " + table + " (activity_type, numeric_value, event_timestamp, status_flag, payload) FROM STDIN WITH (FORMAT " + copyOption + ")";
+    }
+
+    public static ClinicActivityCopyFormat fromParameter(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported COPY format '" + value + "', expected csv or binary.", e);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.sql.SQLException;
+
+/**
+ * Streams clinic activity log rows into a single long-lived PostgreSQL {@link CopyIn}.
+ * Rows are encoded straight into a reusable byte buffer which is handed to
+ * {@link CopyIn#writeToCopy(byte[], int, int)} whenever it fills up, so memory use stays
+ * flat no matter how many rows are written.
+ * <p>
+ * In {@link ClinicActivityCopyFormat#BINARY} mode rows are written as PostgreSQL binary
+ * COPY tuples (int4, timestamp as microseconds since 2000-01-01, bool, UTF-8 text), so
+ * neither side has to escape or parse text.
+ */
+class ClinicActivityCopyWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final short FIELD_COUNT = 5;
+    private static final long POSTGRES_EPOCH_SECONDS = 946_684_800L; // 2000-01-01T00:00:00
+    private static final byte[] BINARY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    private final ClinicActivityCopyFormat format;
+    private final CopyIn copyIn;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] digits = new byte[20];
+    private int position;
+
+    ClinicActivityCopyWriter(CopyManager copyManager, ClinicActivityCopyFormat format) throws SQLException {
+        this(copyManager, format, ClinicActivitySchemaManager.TABLE);
+    }
+
+    ClinicActivityCopyWriter(CopyManager copyManager, ClinicActivityCopyFormat format, String table) throws SQLException {
+        this.format = format;
+        this.copyIn = copyManager.copyIn(format.copySql(table));
+        if (format == ClinicActivityCopyFormat.BINARY) {
+            for (byte b : BINARY_SIGNATURE) {
+                put(b);
+            }
+            putInt(0); // flags
+            putInt(0); // header extension length
+        }
+    }
+
+    /**
+     * @param eventTimestampSeconds the local event date-time as seconds since 1970-01-01T00:00
+     */
+    void writeRow(String activityType, int numericValue, long eventTimestampSeconds, boolean statusFlag,
+                  CharSequence payload) throws SQLException {
+        if (format == ClinicActivityCopyFormat.BINARY) {
+            writeBinaryRow(activityType, numericValue, eventTimestampSeconds, statusFlag, payload);
+            return;
+        }
+        writeQuoted(activityType);
+        put((byte) ',');
+        writeLong(numericValue);
+        put((byte) ',');
+        writeTimestamp(eventTimestampSeconds);
+        put((byte) ',');
+        writeAscii(statusFlag ? "true" : "false");
+        put((byte) ',');
+        writeQuoted(payload);
+        put((byte) '\n');
+    }
+
+    /**
+     * Flushes the remaining buffered bytes and completes the COPY.
+     * @return the number of rows the server reported as copied
+     */
+    long endCopy() throws SQLException {
+        if (format == ClinicActivityCopyFormat.BINARY) {
+            putShort((short) -1); // file trailer
+        }
+        flush();
+        return copyIn.endCopy();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (copyIn.isActive()) {
+            copyIn.cancelCopy();
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (position > 0) {
+            copyIn.writeToCopy(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private void put(byte b) throws SQLException {
+        if (position == buffer.length) {
+            flush();
+        }
+        buffer[position++] = b;
+    }
+
+    private void writeBinaryRow(String activityType, int numericValue, long eventTimestampSeconds, boolean statusFlag,
+                                CharSequence payload) throws SQLException {
+        putShort(FIELD_COUNT);
+        writeBinaryText(activityType);
+        putInt(4);
+        putInt(numericValue);
+        putInt(8);
+        putLong((eventTimestampSeconds - POSTGRES_EPOCH_SECONDS) * 1_000_000L);
+        putInt(1);
+        put((byte) (statusFlag ? 1 : 0));
+        writeBinaryText(payload);
+    }
+
+    private void writeBinaryText(CharSequence value) throws SQLException {
+        if (value == null) {
+            putInt(-1);
+            return;
+        }
+        putInt(utf8Length(value));
+        writeUtf8(value, false);
+    }
+
+    private void putShort(short value) throws SQLException {
+        put((byte) (value >> 8));
+        put((byte) value);
+    }
+
+    private void putInt(int value) throws SQLException {
+        put((byte) (value >> 24));
+        put((byte) (value >> 16));
+        put((byte) (value >> 8));
+        put((byte) value);
+    }
+
+    private void putLong(long value) throws SQLException {
+        putInt((int) (value >> 32));
+        putInt((int) value);
+    }
+
+    private static int utf8Length(CharSequence value) {
+        int length = value.length();
+        int bytes = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private void writeAscii(String value) throws SQLException {
+        for (int i = 0; i < value.length(); i++) {
+            put((byte) value.charAt(i));
+        }
+    }
+
+    // CSV quoting: the value is wrapped in double quotes and embedded quotes are doubled.
+    private void writeQuoted(CharSequence value) throws SQLException {
+        if (value == null) {
+            return;
+        }
+        put((byte) '"');
+        writeUtf8(value, true);
+        put((byte) '"');
+    }
+
+    private void writeUtf8(CharSequence value, boolean doubleQuotes) throws SQLException {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (doubleQuotes && c == '"') {
+                    put((byte) '"');
+                }
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xC0 | (c >> 6)));
+                put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                put((byte) (0xF0 | (codePoint >> 18)));
+                put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                put((byte) (0xE0 | (c >> 12)));
+                put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void writeLong(long value) throws SQLException {
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            put(digits[--count]);
+        }
+    }
+
+    private void writePadded(long value, int width) throws SQLException {
+        for (int i = width - 1; i >= 0; i--) {
+            digits[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        for (int i = 0; i < width; i++) {
+            put(digits[i]);
+        }
+    }
+
+    // Formats yyyy-MM-dd HH:mm:ss without going through LocalDateTime/DateTimeFormatter,
+    // using the days-to-civil conversion from Howard Hinnant's date algorithms.
+    private void writeTimestamp(long epochSeconds) throws SQLException {
+        long days = Math.floorDiv(epochSeconds, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(epochSeconds, SECONDS_PER_DAY);
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        writePadded(year, 4);
+        put((byte) '-');
+        writePadded(month, 2);
+        put((byte) '-');
+        writePadded(day, 2);
+        put((byte) ' ');
+        writePadded(secondOfDay / 3600, 2);
+        put((byte) ':');
+        writePadded((secondOfDay / 60) % 60, 2);
+        put((byte) ':');
+        writePadded(secondOfDay % 60, 2);
+    }
+}
@@ -0,0 +1,144 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Optional in-memory total/active counters per activity type, so the active ratio can be
+ * answered without scanning the table. Writers accumulate a {@link Batch} per transaction
+ * and {@link #add(Batch) add} it once that transaction has committed.
+ * <p>
+ * The counters start out stale and are rebuilt from one grouped query on the first read.
+ * A failed write marks them stale again, as it may have committed only part of its rows;
+ * they are not rebuilt while a population run is still in progress.
+ */
+@Component
+public class ClinicActivityCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicActivityCounters.class);
+
+    /** Rows with a numeric_value above this count as active. */
+    public static final int ACTIVE_THRESHOLD = 99999;
+
+    private static final List<String> TYPES = ClinicActivityRowGenerator.ACTIVITY_TYPES;
+
+    private final boolean enabled;
+    // activity type -> {total, active}
+    private final Map<String, long[]> counts = new HashMap<>();
+    private boolean stale = true;
+    private int activeWriters;
+
+    public ClinicActivityCounters(@Value("${clinic-activity.counters.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param rebuild the grouped counts used when the counters are stale
+     * @return total and active count of the type, or {@code null} if the counters are
+     * disabled or cannot be trusted right now
+     */
+    public synchronized long[] snapshot(String activityType, Supplier<List<ClinicActivityCounts>> rebuild) {
+        if (!enabled) {
+            return null;
+        }
+        if (stale) {
+            if (activeWriters > 0) {
+                return null;
+            }
+            rebuild(rebuild.get());
+        }
+        long[] typeCounts = counts.get(activityType);
+        return typeCounts != null ? typeCounts.clone() : new long[]{0, 0};
+    }
+
+    synchronized void beginWrite() {
+        activeWriters++;
+    }
+
+    synchronized void endWrite() {
+        activeWriters--;
+    }
+
+    synchronized void add(Batch batch) {
+        for (int i = 0; i < TYPES.size(); i++) {
+            if (batch.totals[i] > 0) {
+                long[] typeCounts = counts.computeIfAbsent(TYPES.get(i), type -> new long[2]);
+                typeCounts[0] += batch.totals[i];
+                typeCounts[1] += batch.actives[i];
+            }
+        }
+        batch.clear();
+    }
+
+    synchronized void markStale() {
+        stale = true;
+    }
+
+    /**
+     * For writes that empty the table: the counters are zeroed once the surrounding
+     * transaction, if any, has committed, and stay stale if it rolls back.
+     */
+    void resetAfterCommit() {
+        markStale();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reset();
+                }
+            });
+        } else {
+            reset();
+        }
+    }
+
+    private synchronized void reset() {
+        counts.clear();
+        stale = false;
+    }
+
+    private void rebuild(List<ClinicActivityCounts> grouped) {
+        counts.clear();
+        for (ClinicActivityCounts count : grouped) {
+            counts.put(count.getActivityType(), new long[]{count.getTotal(), count.getActive()});
+        }
+        stale = false;
+        logger.info("Rebuilt clinic activity counters from {} activity types.", grouped.size());
+    }
+
+    /**
+     * Counts of the rows written in one not yet committed transaction. Not thread-safe; use
+     * one per writer.
+     */
+    static class Batch {
+
+        private final long[] totals = new long[TYPES.size()];
+        private final long[] actives = new long[TYPES.size()];
+
+        void record(int activityTypeIndex, int numericValue) {
+            totals[activityTypeIndex]++;
+            if (numericValue > ACTIVE_THRESHOLD) {
+                actives[activityTypeIndex]++;
+            }
+        }
+
+        void clear() {
+            Arrays.fill(totals, 0);
+            Arrays.fill(actives, 0);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+/**
+ * Row counts of one activity type; "active" rows are those with numeric_value above 99999.
+ */
+public interface ClinicActivityCounts {
+
+    String getActivityType();
+
+    long getTotal();
+
+    long getActive();
+
+    /**
+     * @return the share of active rows, 0 when there are no rows at all
+     */
+    default double getRatio() {
+        return getTotal() == 0 ? 0 : (double) getActive() / getTotal();
+    }
+}
@@ -0,0 +1,15 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.time.LocalDateTime;
+
+/**
+ * The filter of {@link ClinicActivityLogRepository#findByComplexCriteria}; the time range
+ * is {@code [startDate, endDate)}.
+ */
+public record ClinicActivityCriteria(String activityType, int minNumericValue, int maxNumericValue,
+                                     LocalDateTime startDate, LocalDateTime endDate, boolean statusFlag) {
+
+    ClinicActivityCriteria withRange(LocalDateTime start, LocalDateTime end) {
+        return new ClinicActivityCriteria(activityType, minNumericValue, maxNumericValue, start, end, statusFlag);
+    }
+}
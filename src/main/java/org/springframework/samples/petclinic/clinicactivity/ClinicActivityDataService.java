@@ -1,9 +1,10 @@
 package org.springframework.samples.petclinic.clinicactivity;
 
-import com.github.javafaker.Faker;
+import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.samples.petclinic.model.ClinicActivityLog;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -11,60 +12,80 @@ import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.SQLException;
 import org.postgresql.PGConnection;
 import org.postgresql.copy.CopyManager;
-import java.sql.Timestamp;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
-import java.util.concurrent.TimeUnit;
-import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 public class ClinicActivityDataService {
 
     private static final Logger logger = LoggerFactory.getLogger(ClinicActivityDataService.class);
-    private static final int BATCH_SIZE = 1000;
-    private static final int COPY_FLUSH_EVERY = 50_000;
+    private static final int PROGRESS_REPORT_EVERY = 50_000;
+    private static final int MIN_ROWS_PER_PARTITION = 10_000;
 
     private final ClinicActivityLogRepository repository;
-    private final JdbcTemplate jdbcTemplate;
     private final DataSource dataSource;
     private final PlatformTransactionManager transactionManager;
-
-    // List of 15 possible activity types
-    private static final List<String> ACTIVITY_TYPES = List.of(
-            "Patient Check-in", "Patient Check-out", "Appointment Scheduling", "Medical Record Update",
-            "Prescription Issuance", "Lab Test Order", "Lab Test Result Review", "Billing Generation",
-            "Payment Processing", "Inventory Check", "Staff Shift Start", "Staff Shift End",
-            "Emergency Alert", "Consultation Note", "Follow-up Reminder"
-    );
-    private final Random random = new Random();
+    private final int defaultParallelism;
+    private final int jdbcRowsPerStatement;
+    private final int jdbcCommitRows;
+    private final ClinicActivityQueryCache queryCache;
+    private final ClinicActivityCounters counters;
+    private final ClinicActivityRollupService rollupService;
+    private final ClinicActivitySchemaManager schemaManager;
 
     @Autowired
     public ClinicActivityDataService(ClinicActivityLogRepository repository,
-                                     JdbcTemplate jdbcTemplate,
                                      DataSource dataSource,
-                                     PlatformTransactionManager transactionManager) {
+                                     PlatformTransactionManager transactionManager,
+                                     ClinicActivityQueryCache queryCache,
+                                     ClinicActivityCounters counters,
+                                     ClinicActivityRollupService rollupService,
+                                     ClinicActivitySchemaManager schemaManager,
+                                     @Value("${clinic-activity.populate.parallelism:1}") int defaultParallelism,
+                                     @Value("${clinic-activity.populate.jdbc.rows-per-statement:500}") int jdbcRowsPerStatement,
+                                     @Value("${clinic-activity.populate.jdbc.commit-rows:50000}") int jdbcCommitRows) {
         this.repository = repository;
-        this.jdbcTemplate = jdbcTemplate;
         this.dataSource = dataSource;
         this.transactionManager = transactionManager;
+        this.queryCache = queryCache;
+        this.counters = counters;
+        this.rollupService = rollupService;
+        this.schemaManager = schemaManager;
+        this.defaultParallelism = defaultParallelism;
+        this.jdbcRowsPerStatement = jdbcRowsPerStatement;
+        this.jdbcCommitRows = jdbcCommitRows;
     }
 
-    @Transactional
-    public int getActiveLogsRatio(String type) {
-		var all = repository.countLogsByType(type);
-		var active = repository.countActiveLogsByType(type);
-		return active/all;
+    public int getDefaultParallelism() {
+        return defaultParallelism;
+    }
+
+    /**
+     * @return the share of active logs of the given type, 0 if there are none; answered from
+     * {@link ClinicActivityCounters} when they are enabled and up to date. Not marked for the
+     * read replica: counters rebuilt right after a truncate or load must see the new table.
+     */
+    @Transactional(readOnly = true)
+    public double getActiveLogsRatio(String type) {
+        long[] counts = counters.snapshot(type, repository::countsGroupedByType);
+        if (counts != null) {
+            return counts[0] == 0 ? 0 : (double) counts[1] / counts[0];
+        }
+        return repository.countsByType(type).map(ClinicActivityCounts::getRatio).orElse(0.0);
     }
 
     @Transactional
@@ -72,7 +93,7 @@ public class ClinicActivityDataService {
         logger.info("Received request to clean up all clinic activity logs.");
         long startTime = System.currentTimeMillis();
         try {
-            repository.deleteAllInBatch(); // Efficiently delete all entries
+            schemaManager.truncateTable();
             long endTime = System.currentTimeMillis();
             logger.info("Successfully cleaned up all clinic activity logs in {} ms.", (endTime - startTime));
         } catch (Exception e) {
@@ -83,8 +104,42 @@ public class ClinicActivityDataService {
 
     @Transactional
     public void populateData(int totalEntries) {
+        populateData(totalEntries, new PopulationOptions(defaultParallelism, ClinicActivityCopyFormat.CSV, null), progress -> {});
+    }
+
+    /**
+     * Populates the clinic activity logs table with rows from {@link ClinicActivityRowGenerator}.
+     * On PostgreSQL the rows are split into {@code parallelism} partitions, each generated on
+     * its own worker thread and streamed through its own COPY connection in the given format;
+     * other databases write every partition with its own {@link ClinicActivityBulkInserter}
+     * and ignore the format.
+     * <p>
+     * {@code onStart} receives the {@link PopulationProgress} of the run as soon as the
+     * partitioning is known; it can be polled for progress and used to cancel the run.
+     */
+    @Transactional
+    public void populateData(int totalEntries, PopulationOptions options, Consumer<PopulationProgress> onStart) {
+        populateData(ClinicActivitySchemaManager.TABLE, totalEntries, options, onStart);
+    }
+
+    /**
+     * Like {@link #populateData(int, PopulationOptions, Consumer)}, but into the given table,
+     * which has the layout of the clinic activity logs table. Only the live table is tracked
+     * by the counters and rollups; any other table is only supported on PostgreSQL.
+     */
+    @Transactional
+    public void populateData(String table, int totalEntries, PopulationOptions options, Consumer<PopulationProgress> onStart) {
         long startTime = System.currentTimeMillis();
+        long seed = options.seed() != null ? options.seed() : ThreadLocalRandom.current().nextLong();
+        long anchorEpochSecond = ClinicActivityRowGenerator.defaultAnchorEpochSecond();
+        ClinicActivityCopyFormat format = options.format();
+        PopulationMemoryProbe memoryProbe = PopulationMemoryProbe.start();
+        long callerAllocatedBefore = PopulationMemoryProbe.currentThreadAllocatedBytes();
+        boolean live = ClinicActivitySchemaManager.TABLE.equals(table);
         Connection con = null;
+        if (live) {
+            counters.beginWrite();
+        }
         try {
             con = DataSourceUtils.getConnection(dataSource);
             String databaseProductName = con.getMetaData().getDatabaseProductName();
@@ -92,59 +147,70 @@ public class ClinicActivityDataService {
             con = null;
 
             if ("PostgreSQL".equalsIgnoreCase(databaseProductName)) {
-                logger.info("Using PostgreSQL COPY for data population of {} entries.", totalEntries);
-                populateDataWithCopyToNewTransaction(totalEntries);
+                int partitions = effectiveParallelism(totalEntries, options.parallelism());
+                PopulationProgress progress = new PopulationProgress(totalEntries, partitions);
+                onStart.accept(progress);
+                if (partitions > 1) {
+                    logger.info("Using parallel PostgreSQL {} COPY for data population of {} entries across {} partitions (seed {}).", format, totalEntries, partitions, seed);
+                    populateDataWithParallelCopy(table, progress, format, seed, anchorEpochSecond, memoryProbe);
+                } else {
+                    logger.info("Using PostgreSQL {} COPY for data population of {} entries (seed {}).", format, totalEntries, seed);
+                    populateDataWithCopyToNewTransaction(table, progress, format, seed, anchorEpochSecond);
+                }
+            } else if (!live) {
+                throw new IllegalArgumentException("Populating '" + table + "' is only supported on PostgreSQL.");
             } else {
-                logger.info("Using JDBC batch inserts for data population of {} entries (Database: {}).", totalEntries, databaseProductName);
-                populateDataWithJdbcBatchInNewTransaction(totalEntries);
+                int partitions = effectiveParallelism(totalEntries, options.parallelism());
+                PopulationProgress progress = new PopulationProgress(totalEntries, partitions);
+                onStart.accept(progress);
+                logger.info("Using multi-row JDBC inserts for data population of {} entries across {} partitions (Database: {}, seed {}).",
+                    totalEntries, partitions, databaseProductName, seed);
+                populateDataWithBulkInserts(progress, seed, anchorEpochSecond, memoryProbe);
             }
         } catch (Exception e) {
+            if (live) {
+                counters.markStale();
+            }
             logger.error("Error during data population orchestration", e);
             throw new RuntimeException("Error during data population orchestration: " + e.getMessage(), e);
         } finally {
             if (con != null) {
                  DataSourceUtils.releaseConnection(con, dataSource);
             }
+            memoryProbe.recordAllocatedBytes(PopulationMemoryProbe.currentThreadAllocatedBytes() - callerAllocatedBefore);
+            if (live) {
+                // chunks and partitions commit on their own, so even a failed run changes the table
+                queryCache.invalidateAll();
+                counters.endWrite();
+            }
+        }
+        if (live && rollupService.isEnabled()) {
+            try {
+                rollupService.rollUpNewRows();
+            } catch (RuntimeException e) {
+                // the watermark did not move, the next roll up picks these rows up again
+                logger.warn("Rolling up the new clinic activity logs failed", e);
+            }
         }
         long endTime = System.currentTimeMillis();
-        logger.info("Finished data population for {} clinic activity logs in {} ms.", totalEntries, (endTime - startTime));
+        logger.info("Finished data population for {} clinic activity logs into '{}' in {} ms (peak heap {} MB, allocated {} MB at {} MB/s).",
+            totalEntries, table, (endTime - startTime), memoryProbe.getPeakHeapMegabytes(),
+            memoryProbe.getAllocatedMegabytes(), memoryProbe.getAllocationRateMegabytesPerSecond(endTime - startTime));
     }
 
-    private void populateDataWithCopyToNewTransaction(int totalEntries) throws Exception {
+    private void populateDataWithCopyToNewTransaction(String table, PopulationProgress progress, ClinicActivityCopyFormat format,
+                                                      long seed, long anchorEpochSecond) throws Exception {
         DefaultTransactionDefinition def = new DefaultTransactionDefinition();
         def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
         TransactionStatus status = transactionManager.getTransaction(def);
         Connection connection = null;
         try {
             connection = DataSourceUtils.getConnection(dataSource);
-            Faker faker = new Faker(new Locale("en-US"));
-            DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            StringBuilder sb = new StringBuilder();
-            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
-
-            for (int i = 0; i < totalEntries; i++) {
-                String activityType = ACTIVITY_TYPES.get(random.nextInt(ACTIVITY_TYPES.size()));
-                int numericVal = faker.number().numberBetween(1, 100_000);
-                String ts = dtf.format(LocalDateTime.ofInstant(
-                        faker.date().past(5 * 365, TimeUnit.DAYS).toInstant(), ZoneId.systemDefault()));
-                boolean statusFlag = faker.bool().bool();
-                String payload = String.join(" ", faker.lorem().paragraphs(faker.number().numberBetween(1, 3)));
-
-                sb.append(csv(activityType)).append(',')
-                  .append(numericVal).append(',')
-                  .append(csv(ts)).append(',')
-                  .append(statusFlag).append(',')
-                  .append(csv(payload)).append('\n');
-
-                if ((i + 1) % COPY_FLUSH_EVERY == 0 || (i + 1) == totalEntries) {
-                    copyManager.copyIn("COPY clinic_activity_logs (activity_type, numeric_value, event_timestamp, status_flag, payload) FROM STDIN WITH (FORMAT csv)", new java.io.StringReader(sb.toString()));
-                    sb.setLength(0);
-                    if (logger.isInfoEnabled()){
-                        logger.info("COPY inserted {} / {} clinic activity logs...", (i + 1), totalEntries);
-                    }
-                }
-            }
+            ClinicActivityCounters.Batch counts = new ClinicActivityCounters.Batch();
+            copyPartition(connection, table, 0, progress, format,
+                ClinicActivityRowGenerator.forPartition(seed, 0, anchorEpochSecond), counts);
             transactionManager.commit(status);
+            addCounts(table, counts);
         } catch (Exception e) {
             if (!status.isCompleted()) {
                 transactionManager.rollback(status);
@@ -158,149 +224,150 @@ public class ClinicActivityDataService {
         }
     }
 
-    private void populateDataWithJdbcBatchInNewTransaction(int totalEntries) {
-        DefaultTransactionDefinition def = new DefaultTransactionDefinition();
-        def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
-        TransactionStatus status = transactionManager.getTransaction(def);
+    /**
+     * Each partition commits on its own connection, so a failed run can leave the
+     * partitions that already finished in the table.
+     */
+    private void populateDataWithParallelCopy(String table, PopulationProgress progress, ClinicActivityCopyFormat format,
+                                              long seed, long anchorEpochSecond,
+                                              PopulationMemoryProbe memoryProbe) throws Exception {
+        runPartitions("ClinicActivityCopy-", progress, memoryProbe, partition -> copyPartitionInOwnTransaction(
+            table, partition, progress, format, ClinicActivityRowGenerator.forPartition(seed, partition, anchorEpochSecond)));
+        logger.info("Parallel COPY finished in {} ms: {}", progress.getElapsedMillis(), progress);
+    }
+
+    /**
+     * Runs the task once for every partition of the progress, each on its own worker
+     * thread, and rethrows the first failure after stopping the other workers.
+     */
+    private void runPartitions(String threadPrefix, PopulationProgress progress, PopulationMemoryProbe memoryProbe,
+                               PartitionTask task) throws Exception {
+        int partitions = progress.getPartitionCount();
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(partitions, runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
         try {
-            Faker faker = new Faker(new Locale("en-US"));
-            String sql = "INSERT INTO clinic_activity_logs (activity_type, numeric_value, event_timestamp, status_flag, payload) VALUES (?, ?, ?, ?, ?)";
-            for (int i = 0; i < totalEntries; ) {
-                List<Object[]> batchArgs = new ArrayList<>();
-                for (int j = 0; j < BATCH_SIZE && i < totalEntries; j++, i++) {
-                    String activityType = ACTIVITY_TYPES.get(random.nextInt(ACTIVITY_TYPES.size()));
-                    int numericVal = faker.number().numberBetween(1, 100_000);
-                    Timestamp eventTimestamp = Timestamp.from(
-                        faker.date().past(5 * 365, TimeUnit.DAYS).toInstant().atZone(ZoneId.systemDefault()).toInstant()
-                    );
-                    boolean statusFlag = faker.bool().bool();
-                    String payload = String.join(" ", faker.lorem().paragraphs(faker.number().numberBetween(1, 3)));
-                    batchArgs.add(new Object[]{activityType, numericVal, eventTimestamp, statusFlag, payload});
-                }
-                if (!batchArgs.isEmpty()) {
-                    jdbcTemplate.batchUpdate(sql, batchArgs);
-                     if (logger.isInfoEnabled()) {
-                        logger.info("JDBC batch inserted {} / {} clinic activity logs...", i, totalEntries);
-                     }
-                }
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < partitions; p++) {
+                final int partition = p;
+                futures.add(executor.submit(() -> {
+                    long allocatedBefore = PopulationMemoryProbe.currentThreadAllocatedBytes();
+                    try {
+                        task.run(partition);
+                    } finally {
+                        memoryProbe.recordAllocatedBytes(PopulationMemoryProbe.currentThreadAllocatedBytes() - allocatedBefore);
+                    }
+                    return null;
+                }));
             }
-            transactionManager.commit(status);
-        } catch (Exception e) {
-            if (!status.isCompleted()) {
-                transactionManager.rollback(status);
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    executor.shutdownNow();
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
             }
-            logger.error("Error during JDBC batch population with new transaction", e);
-            throw new RuntimeException("Error during JDBC batch population with new transaction: " + e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
         }
     }
 
-    private String csv(String value) {
-        if (value == null) {
-            return "";
-        }
-        String escaped = value.replace("\"", "\"\"").replace("\\", "\\\\");
-        return '"' + escaped + '"';
+    @FunctionalInterface
+    private interface PartitionTask {
+        void run(int partition) throws Exception;
     }
 
-	public void createIOIntensiveLoad(int durationMinutes, int numThreads, int limit) {
-		logger.warn("Starting I/O INTENSIVE load test for {} minutes with {} threads and {} limit - This will MAX OUT disk I/O operations!",
-			durationMinutes, numThreads, limit);
-		long startTime = System.currentTimeMillis();
-		long endTime = startTime + (durationMinutes * 60 * 1000L);
-
-		try {
-			AtomicInteger globalOperationCount = new AtomicInteger(0);
-			List<Thread> threads = new ArrayList<>();
-
-			logger.info("Creating {} I/O intensive threads with {} record limit per query...", numThreads, limit);
-
-			// Create I/O intensive threads
-			for (int t = 0; t < numThreads; t++) {
-				final int threadId = t;
-				Thread ioThread = new Thread(() -> {
-					try {
-						executeIOIntensiveThread(threadId, endTime, globalOperationCount, limit);
-					} catch (Exception e) {
-						logger.error("Error in I/O intensive thread {}", threadId, e);
-					}
-				});
-
-				ioThread.setName("IOIntensiveThread-" + threadId);
-				threads.add(ioThread);
-			}
-
-			// Start all threads
-			logger.info("Starting all {} I/O intensive threads...", numThreads);
-			for (Thread thread : threads) {
-				thread.start();
-			}
-
-			// Wait for all threads to complete
-			for (Thread thread : threads) {
-				try {
-					thread.join();
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-					logger.warn("Interrupted while waiting for I/O thread: {}", thread.getName());
-				}
-			}
-
-			long actualEndTime = System.currentTimeMillis();
-			logger.warn("Completed I/O INTENSIVE load test in {} ms with {} threads and {} limit. Total operations: {}",
-				(actualEndTime - startTime), numThreads, limit, globalOperationCount.get());
-
-		} catch (Exception e) {
-			logger.error("Error during I/O intensive load test", e);
-			throw new RuntimeException("Error during I/O intensive load test: " + e.getMessage(), e);
-		}
-	}
-
-	private void executeIOIntensiveThread(int threadId, long endTime, AtomicInteger globalOperationCount, int limit) {
-		Random random = new Random();
-		Faker faker = new Faker(new Locale("en-US"));
-		int localOperationCount = 0;
-
-		logger.info("I/O Thread {} starting I/O intensive operations with {} record limit...", threadId, limit);
-
-		while (System.currentTimeMillis() < endTime) {
-			try {
-				// LARGE SEQUENTIAL SCAN - Forces full table scan I/O
-				jdbcTemplate.queryForList(
-					"SET work_mem = '512MB';" +
-						"SELECT id, activity_type, numeric_value, event_timestamp, payload " +
-						"FROM clinic_activity_logs " +
-						"WHERE LENGTH(payload) > 100 " +
-						"ORDER BY random()" +
-						"LIMIT " + limit);
-
-
-				localOperationCount++;
-				int currentGlobalCount = globalOperationCount.incrementAndGet();
+    private void copyPartitionInOwnTransaction(String table, int partition, PopulationProgress progress, ClinicActivityCopyFormat format,
+                                               ClinicActivityRowGenerator generator) throws Exception {
+        long startTime = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                ClinicActivityCounters.Batch counts = new ClinicActivityCounters.Batch();
+                copyPartition(connection, table, partition, progress, format, generator, counts);
+                connection.commit();
+                addCounts(table, counts);
+            } catch (Exception e) {
+                connection.rollback();
+                logger.error("Error during COPY of partition {}, partition rolled back", partition, e);
+                throw e;
+            }
+        }
+        logger.info("COPY partition {} committed {} clinic activity logs in {} ms.",
+            partition, progress.getPartitionRows(partition), (System.currentTimeMillis() - startTime));
+    }
 
-				// Log progress every 100 operations per thread
-				if (localOperationCount % 100 == 0) {
-					long remainingTime = (endTime - System.currentTimeMillis()) / 1000;
-					logger.info("I/O Thread {} completed {} operations (Global: {}). Time remaining: {}s",
-						threadId, localOperationCount, currentGlobalCount, remainingTime);
-				}
+    private void addCounts(String table, ClinicActivityCounters.Batch counts) {
+        if (ClinicActivitySchemaManager.TABLE.equals(table)) {
+            counters.add(counts);
+        }
+    }
 
-				// No sleep - continuous I/O operations for maximum I/O pressure
-				// But avoid overwhelming the system with a tiny yield
-				if (localOperationCount % 50 == 0) {
-					Thread.yield();
-				}
+    private void copyPartition(Connection connection, String table, int partition, PopulationProgress progress,
+                               ClinicActivityCopyFormat format, ClinicActivityRowGenerator generator,
+                               ClinicActivityCounters.Batch counts) throws Exception {
+        int partitionRows = progress.getPartitionRows(partition);
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+
+        try (ClinicActivityCopyWriter writer = new ClinicActivityCopyWriter(copyManager, format, table)) {
+            int pending = 0;
+            for (int i = 0; i < partitionRows; i++) {
+                progress.checkNotCancelled();
+                generator.next();
+                writer.writeRow(generator.getActivityType(), generator.getNumericValue(),
+                    generator.getEventTimestampSeconds(), generator.isStatusFlag(), generator.getPayload());
+                counts.record(generator.getActivityTypeIndex(), generator.getNumericValue());
+                pending++;
+
+                if ((i + 1) % PROGRESS_REPORT_EVERY == 0) {
+                    progress.record(partition, pending);
+                    pending = 0;
+                    if (logger.isInfoEnabled()){
+                        logger.info("COPY partition {}/{} streamed {} / {} clinic activity logs (overall {} / {})...",
+                            partition + 1, progress.getPartitionCount(), (i + 1), partitionRows,
+                            progress.getRowsWritten(), progress.getTotalRows());
+                    }
+                }
+            }
+            writer.endCopy();
+            progress.record(partition, pending);
+        }
+    }
 
-			} catch (Exception e) {
-				logger.error("Error in I/O operation for thread {}", threadId, e);
-				try {
-					Thread.sleep(10); // Brief pause on error
-				} catch (InterruptedException ie) {
-					Thread.currentThread().interrupt();
-					break;
-				}
-			}
-		}
+    /**
+     * Caps the requested parallelism so every partition gets a meaningful share of rows
+     * and the workers leave at least one pooled connection for the rest of the app, on top
+     * of the connection the caller's transaction may already hold.
+     */
+    private int effectiveParallelism(int totalEntries, int requested) throws SQLException {
+        int effective = Math.max(1, Math.min(requested, totalEntries / MIN_ROWS_PER_PARTITION));
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            int poolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            int reserved = TransactionSynchronizationManager.isActualTransactionActive() ? 2 : 1;
+            effective = Math.min(effective, Math.max(1, poolSize - reserved));
+        }
+        if (effective != requested) {
+            logger.info("Requested population parallelism {} reduced to {} for {} entries.", requested, effective, totalEntries);
+        }
+        return effective;
+    }
 
-		logger.info("I/O Thread {} completed {} total I/O operations", threadId, localOperationCount);
-	}
+    private void populateDataWithBulkInserts(PopulationProgress progress, long seed, long anchorEpochSecond,
+                                             PopulationMemoryProbe memoryProbe) throws Exception {
+        if (progress.getPartitionCount() == 1) {
+            new ClinicActivityBulkInserter(dataSource, jdbcRowsPerStatement, jdbcCommitRows)
+                .insert(progress, ClinicActivityRowGenerator.forPartition(seed, 0, anchorEpochSecond), counters);
+            return;
+        }
+        // every partition tunes its own statement size on its own connection
+        runPartitions("ClinicActivityInsert-", progress, memoryProbe, partition ->
+            new ClinicActivityBulkInserter(dataSource, jdbcRowsPerStatement, jdbcCommitRows)
+                .insert(progress, partition, ClinicActivityRowGenerator.forPartition(seed, partition, anchorEpochSecond), counters));
+        logger.info("Parallel bulk insert finished in {} ms: {}", progress.getElapsedMillis(), progress);
+    }
 }
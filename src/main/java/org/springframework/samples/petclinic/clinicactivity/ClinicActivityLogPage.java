@@ -0,0 +1,18 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One keyset page of clinic activity logs.
+ *
+ * @param rows the rows of the page, ordered by id
+ * @param nextAfterId the {@code after_id} that fetches the following page, or {@code null}
+ * if this is the last page
+ */
+public record ClinicActivityLogPage(List<Map<String, Object>> rows, Integer nextAfterId) {
+
+    public boolean isHasMore() {
+        return nextAfterId != null;
+    }
+}
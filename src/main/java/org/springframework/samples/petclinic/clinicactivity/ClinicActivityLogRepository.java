@@ -1,13 +1,18 @@
 package org.springframework.samples.petclinic.clinicactivity;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.samples.petclinic.model.ClinicActivityLog;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ClinicActivityLogRepository extends JpaRepository<ClinicActivityLog, Integer> {
@@ -25,12 +30,66 @@ public interface ClinicActivityLogRepository extends JpaRepository<ClinicActivit
         @Param("statusFlag") Boolean statusFlag
     );
 
-    @Query("SELECT COUNT(1) FROM ClinicActivityLog cal WHERE cal.activityType = :activityType ")
-    int countLogsByType(
-        @Param("activityType") String activityType);
+    String SUMMARY_CRITERIA = "FROM ClinicActivityLog cal WHERE cal.activityType = :activityType " +
+        "AND cal.numericValue >= :minNumericValue AND cal.numericValue <= :maxNumericValue " +
+        "AND cal.eventTimestamp >= :startDate AND cal.eventTimestamp < :endDate " +
+        "AND cal.statusFlag = :statusFlag " +
+        "AND (cal.eventTimestamp > :afterTimestamp OR (cal.eventTimestamp = :afterTimestamp AND cal.id > :afterId)) " +
+        "ORDER BY cal.eventTimestamp, cal.id";
 
-    @Query("SELECT COUNT(1) FROM ClinicActivityLog cal WHERE cal.activityType = :activityType " +
-		   "AND cal.numericValue > 99999") // let's assume this condition means active
-    int countActiveLogsByType(
-        @Param("activityType") String activityType);
+    /**
+     * Keyset page of {@link #findByComplexCriteria} rows after {@code (afterTimestamp, afterId)},
+     * without the payload.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500")
+    })
+    @Query("SELECT new org.springframework.samples.petclinic.clinicactivity.ClinicActivityLogSummary(" +
+           "cal.id, cal.activityType, cal.numericValue, cal.eventTimestamp, cal.statusFlag) " + SUMMARY_CRITERIA)
+    List<ClinicActivityLogSummary> findSummariesByCriteria(
+        @Param("activityType") String activityType,
+        @Param("minNumericValue") Integer minNumericValue,
+        @Param("maxNumericValue") Integer maxNumericValue,
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate,
+        @Param("statusFlag") Boolean statusFlag,
+        @Param("afterTimestamp") LocalDateTime afterTimestamp,
+        @Param("afterId") Integer afterId,
+        Limit limit
+    );
+
+    /**
+     * Same as {@link #findSummariesByCriteria} including the payload.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500")
+    })
+    @Query("SELECT new org.springframework.samples.petclinic.clinicactivity.ClinicActivityLogSummary(" +
+           "cal.id, cal.activityType, cal.numericValue, cal.eventTimestamp, cal.statusFlag, cal.payload) " + SUMMARY_CRITERIA)
+    List<ClinicActivityLogSummary> findSummariesWithPayloadByCriteria(
+        @Param("activityType") String activityType,
+        @Param("minNumericValue") Integer minNumericValue,
+        @Param("maxNumericValue") Integer maxNumericValue,
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate,
+        @Param("statusFlag") Boolean statusFlag,
+        @Param("afterTimestamp") LocalDateTime afterTimestamp,
+        @Param("afterId") Integer afterId,
+        Limit limit
+    );
+
+    String COUNTS_SELECT = "SELECT cal.activityType AS activityType, COUNT(cal) AS total, " +
+        "SUM(CASE WHEN cal.numericValue > " + ClinicActivityCounters.ACTIVE_THRESHOLD + " THEN 1 ELSE 0 END) AS active " +
+        "FROM ClinicActivityLog cal ";
+
+    /**
+     * Total and active count of one activity type in a single pass; empty if the type has no rows.
+     */
+    @Query(COUNTS_SELECT + "WHERE cal.activityType = :activityType GROUP BY cal.activityType")
+    Optional<ClinicActivityCounts> countsByType(@Param("activityType") String activityType);
+
+    @Query(COUNTS_SELECT + "GROUP BY cal.activityType")
+    List<ClinicActivityCounts> countsGroupedByType();
 }
@@ -0,0 +1,16 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of a clinic activity log row, selected with a JPQL constructor expression
+ * so it never enters the persistence context. The payload is only loaded when asked for.
+ */
+public record ClinicActivityLogSummary(Integer id, String activityType, Integer numericValue,
+                                       LocalDateTime eventTimestamp, Boolean statusFlag, String payload) {
+
+    public ClinicActivityLogSummary(Integer id, String activityType, Integer numericValue,
+                                    LocalDateTime eventTimestamp, Boolean statusFlag) {
+        this(id, activityType, numericValue, eventTimestamp, statusFlag, null);
+    }
+}
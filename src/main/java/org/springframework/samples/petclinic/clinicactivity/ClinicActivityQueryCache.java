@@ -0,0 +1,81 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Result cache for read queries on clinic_activity_logs, keyed by the whitespace-normalized
+ * SQL and its parameters. Size and TTL bounds are configured on the
+ * {@value #CACHE_NAME} cache in {@code CacheConfiguration}.
+ * <p>
+ * Everything that writes the table calls {@link #invalidateAll()}. Without a cache manager,
+ * or without the {@value #CACHE_NAME} cache, queries simply run every time.
+ */
+@Component
+public class ClinicActivityQueryCache {
+
+    public static final String CACHE_NAME = "clinicActivityQueries";
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicActivityQueryCache.class);
+
+    private final Cache cache;
+
+    @Autowired
+    public ClinicActivityQueryCache(ObjectProvider<CacheManager> cacheManager) {
+        this(cacheManager.stream().map(cm -> cm.getCache(CACHE_NAME)).filter(c -> c != null).findFirst().orElse(null));
+    }
+
+    ClinicActivityQueryCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the cached result of the query, running it on a miss. The result is shared
+     * between callers and must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String sql, Object[] params, Supplier<T> query) {
+        if (cache == null) {
+            return query.get();
+        }
+        return (T) cache.get(new QueryKey(normalize(sql), Arrays.asList(params)), query::get);
+    }
+
+    /**
+     * Drops all cached results now and, when called inside a transaction, once more after
+     * it completes so results read before the commit are not kept.
+     */
+    public void invalidateAll() {
+        if (cache == null) {
+            return;
+        }
+        cache.invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate();
+                }
+            });
+        }
+        logger.debug("Invalidated clinic activity query cache.");
+    }
+
+    static String normalize(String sql) {
+        return sql.strip().replaceAll("\\s+", " ");
+    }
+
+    record QueryKey(String sql, List<Object> params) {
+    }
+}
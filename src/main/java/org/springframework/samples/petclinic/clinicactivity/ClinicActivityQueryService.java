@@ -0,0 +1,144 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.samples.petclinic.system.ReadReplica;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads clinic activity logs without materializing the whole result set: either one
+ * keyset page at a time, or streamed row by row from a server-side cursor. Bounded
+ * results go through {@link ClinicActivityQueryCache} and are read from the primary, as
+ * the cache would keep serving a lagging replica's rows long after it caught up; streams
+ * are never cached and may be served by the read replica.
+ */
+@Service
+public class ClinicActivityQueryService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    /** Columns that can be requested through the {@code fields} parameter, in select order. */
+    public static final List<String> COLUMNS =
+        List.of("id", "activity_type", "numeric_value", "event_timestamp", "status_flag", "payload");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate replicaTransaction;
+    private final ObjectMapper objectMapper;
+    private final ClinicActivityQueryCache queryCache;
+
+    @Autowired
+    public ClinicActivityQueryService(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                                      PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                      ClinicActivityQueryCache queryCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queryCache = queryCache;
+        // PostgreSQL only honours the fetch size (i.e. uses a cursor) inside a transaction
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.replicaTransaction = ReadReplica.transactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Parses a comma separated {@code fields} parameter against {@link #COLUMNS}.
+     * @return the requested columns in select order, or all columns if {@code fields} is empty
+     * @throws IllegalArgumentException for unknown columns
+     */
+    public static List<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return COLUMNS;
+        }
+        Set<String> requested = new HashSet<>();
+        for (String field : fields.split(",")) {
+            String column = field.trim().toLowerCase(Locale.ROOT);
+            if (!COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("Unknown field '" + field.trim() + "', expected any of " + COLUMNS + ".");
+            }
+            requested.add(column);
+        }
+        return COLUMNS.stream().filter(requested::contains).toList();
+    }
+
+    // Column names only ever come from COLUMNS, so they are safe to concatenate
+    private static String selectLogs(List<String> columns) {
+        return "SELECT " + String.join(", ", columns) + " FROM clinic_activity_logs";
+    }
+
+    /**
+     * Same as {@code query-logs}: every matching row, limited to the given columns.
+     */
+    public List<Map<String, Object>> findLogs(int numericValue, List<String> columns) {
+        return queryForList(selectLogs(columns) + " WHERE numeric_value = ?", numericValue);
+    }
+
+    /**
+     * @param afterId only rows with a greater id are returned; {@code null} for the first page
+     * @param limit page size, at most {@link #MAX_PAGE_SIZE}
+     * @param columns the columns to return; id is always included as it is the page key
+     */
+    public ClinicActivityLogPage findPage(int numericValue, Integer afterId, int limit, List<String> columns) {
+        if (!columns.contains("id")) {
+            columns = parseFields("id," + String.join(",", columns));
+        }
+        // one extra row tells whether another page follows
+        List<Map<String, Object>> rows = queryForList(
+            selectLogs(columns) + " WHERE numeric_value = ? AND id > ? ORDER BY id LIMIT ?",
+            numericValue, afterId != null ? afterId : Integer.MIN_VALUE, limit + 1);
+        if (rows.size() <= limit) {
+            return new ClinicActivityLogPage(rows, null);
+        }
+        List<Map<String, Object>> page = new ArrayList<>(rows.subList(0, limit));
+        return new ClinicActivityLogPage(page, ((Number) page.get(limit - 1).get("id")).intValue());
+    }
+
+    private List<Map<String, Object>> queryForList(String sql, Object... params) {
+        return queryCache.get(sql, params, () -> jdbcTemplate.queryForList(sql, params));
+    }
+
+    /**
+     * Writes every matching row as one JSON object per line (NDJSON), straight from the
+     * {@code ResultSet}, so memory use does not depend on the number of rows.
+     */
+    public void streamLogs(int numericValue, List<String> columns, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            replicaTransaction.executeWithoutResult(status -> streamingJdbcTemplate.query(
+                selectLogs(columns) + " WHERE numeric_value = ? ORDER BY id",
+                rs -> {
+                    ResultSetMetaData metaData = rs.getMetaData();
+                    int columnCount = metaData.getColumnCount();
+                    try {
+                        generator.writeStartObject();
+                        for (int i = 1; i <= columnCount; i++) {
+                            generator.writeFieldName(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+                            generator.writeObject(JdbcUtils.getResultSetValue(rs, i));
+                        }
+                        generator.writeEndObject();
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                },
+                numericValue));
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Maintains {@code clinic_activity_rollups}: per hour and per day bucket and activity type,
+ * the row count, active count, sum, min, max and a 20 bin histogram of numeric_value, so
+ * time range queries read a few hundred pre-aggregated rows instead of the log table.
+ * <p>
+ * Rolling up is incremental: a watermark keeps the highest log id already aggregated, and
+ * each run folds the rows above it into the existing buckets with one grouped
+ * {@code INSERT ... SELECT} upsert per granularity. Percentiles are interpolated from the
+ * histogram, so they are accurate to within one bin ({@value #BIN_WIDTH}).
+ */
+@Service
+public class ClinicActivityRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicActivityRollupService.class);
+
+    static final int BIN_COUNT = 20;
+    // numeric_value is generated in 1..100000
+    static final int BIN_WIDTH = 5_000;
+    public static final int MAX_ROWS = 10_000;
+
+    private static final String TABLE = ClinicActivitySchemaManager.ROLLUP_TABLE;
+    private static final String WATERMARK_TABLE = ClinicActivitySchemaManager.ROLLUP_WATERMARK_TABLE;
+
+    public enum Granularity {
+        HOUR, DAY;
+
+        public static Granularity fromParameter(String value) {
+            for (Granularity granularity : values()) {
+                if (granularity.name().equalsIgnoreCase(value)) {
+                    return granularity;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported granularity '" + value + "', expected hour or day.");
+        }
+    }
+
+    /**
+     * One bucket of one activity type; percentiles are {@code null} for empty buckets.
+     */
+    public record Bucket(LocalDateTime bucketStart, String activityType, long count, long activeCount,
+                         double average, Integer min, Integer max, Integer p50, Integer p90, Integer p99) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClinicActivitySchemaManager schemaManager;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    @Autowired
+    public ClinicActivityRollupService(JdbcTemplate jdbcTemplate, ClinicActivitySchemaManager schemaManager,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${clinic-activity.rollups.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.schemaManager = schemaManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Whether population runs roll up the rows they wrote; {@link #refresh()} works either way.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Folds all log rows above the watermark into the rollups.
+     * @return the number of log rows rolled up
+     */
+    public synchronized long rollUpNewRows() {
+        schemaManager.ensureRollupTables();
+        String dialect = schemaManager.getDatabaseProductName();
+        long start = System.currentTimeMillis();
+        Long rolledUp = transactionTemplate.execute(status -> {
+            long fromId = jdbcTemplate.queryForObject("SELECT last_log_id FROM " + WATERMARK_TABLE + " WHERE id = 1", Long.class);
+            long toId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM clinic_activity_logs", Long.class);
+            if (toId <= fromId) {
+                return 0L;
+            }
+            for (Granularity granularity : Granularity.values()) {
+                jdbcTemplate.update(upsertSql(dialect, granularity), fromId, toId);
+            }
+            jdbcTemplate.update("UPDATE " + WATERMARK_TABLE + " SET last_log_id = ? WHERE id = 1", toId);
+            return toId - fromId;
+        });
+        logger.info("Rolled up {} new clinic activity log ids in {} ms.", rolledUp, System.currentTimeMillis() - start);
+        return rolledUp;
+    }
+
+    /**
+     * Rebuilds the rollups from the whole log table.
+     * @return the number of log rows rolled up
+     */
+    public synchronized long refresh() {
+        schemaManager.clearRollups();
+        return rollUpNewRows();
+    }
+
+    /**
+     * @param from inclusive start of the range, matched against the bucket start
+     * @param to exclusive end of the range
+     * @param activityType only this type, or all types if {@code null}
+     */
+    public List<Bucket> findBuckets(Granularity granularity, LocalDateTime from, LocalDateTime to, String activityType) {
+        schemaManager.ensureRollupTables();
+        String sql = "SELECT * FROM " + TABLE + " WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?";
+        if (activityType != null) {
+            return jdbcTemplate.query(sql + " AND activity_type = ? ORDER BY bucket_start, activity_type LIMIT " + MAX_ROWS,
+                (rs, rowNum) -> toBucket(rs), granularity.name(), Timestamp.valueOf(from), Timestamp.valueOf(to), activityType);
+        }
+        return jdbcTemplate.query(sql + " ORDER BY bucket_start, activity_type LIMIT " + MAX_ROWS,
+            (rs, rowNum) -> toBucket(rs), granularity.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private static Bucket toBucket(ResultSet rs) throws SQLException {
+        long count = rs.getLong("row_count");
+        long[] bins = new long[BIN_COUNT];
+        for (int bin = 0; bin < BIN_COUNT; bin++) {
+            bins[bin] = rs.getLong(binColumn(bin));
+        }
+        Integer min = rs.getObject("value_min", Integer.class);
+        Integer max = rs.getObject("value_max", Integer.class);
+        return new Bucket(rs.getTimestamp("bucket_start").toLocalDateTime(), rs.getString("activity_type"),
+            count, rs.getLong("active_count"), count > 0 ? (double) rs.getLong("value_sum") / count : 0.0,
+            min, max, percentile(bins, 0.50, min, max), percentile(bins, 0.90, min, max), percentile(bins, 0.99, min, max));
+    }
+
+    /**
+     * Linear interpolation inside the bin holding the requested rank, with the outer bins
+     * narrowed to the observed min and max.
+     */
+    static Integer percentile(long[] bins, double quantile, Integer min, Integer max) {
+        long total = 0;
+        for (long bin : bins) {
+            total += bin;
+        }
+        if (total == 0 || min == null || max == null) {
+            return null;
+        }
+        double rank = Math.max(1, Math.ceil(quantile * total));
+        long before = 0;
+        for (int bin = 0; bin < bins.length; bin++) {
+            if (bins[bin] > 0 && before + bins[bin] >= rank) {
+                double low = Math.max(min, bin == 0 ? min : bin * BIN_WIDTH);
+                double high = Math.min(max, bin == bins.length - 1 ? max : (bin + 1) * BIN_WIDTH - 1);
+                double fraction = (rank - before) / bins[bin];
+                return (int) Math.round(low + fraction * (high - low));
+            }
+            before += bins[bin];
+        }
+        return max;
+    }
+
+    static String binColumn(int bin) {
+        return String.format(Locale.ROOT, "bin_%02d", bin);
+    }
+
+    private static String bucketExpression(String dialect, Granularity granularity) {
+        if ("MySQL".equalsIgnoreCase(dialect) || "MariaDB".equalsIgnoreCase(dialect)) {
+            return granularity == Granularity.HOUR
+                ? "TIMESTAMP(DATE_FORMAT(event_timestamp, '%Y-%m-%d %H:00:00'))"
+                : "TIMESTAMP(DATE(event_timestamp))";
+        }
+        return "DATE_TRUNC('" + granularity.name() + "', event_timestamp)";
+    }
+
+    private static String columns() {
+        StringBuilder columns = new StringBuilder(
+            "granularity, bucket_start, activity_type, row_count, active_count, value_sum, value_min, value_max");
+        for (int bin = 0; bin < BIN_COUNT; bin++) {
+            columns.append(", ").append(binColumn(bin));
+        }
+        return columns.toString();
+    }
+
+    // Aggregates the log rows with fromId < id <= toId per bucket and type; columns as in columns()
+    static String aggregateSql(String dialect, Granularity granularity) {
+        String bucket = bucketExpression(dialect, granularity);
+        StringBuilder sql = new StringBuilder("SELECT '").append(granularity.name()).append("' AS granularity, ")
+            .append(bucket).append(" AS bucket_start, ")
+            .append("COALESCE(activity_type, '') AS activity_type, ")
+            .append("COUNT(*) AS row_count, ")
+            .append("SUM(CASE WHEN numeric_value > ").append(ClinicActivityCounters.ACTIVE_THRESHOLD)
+            .append(" THEN 1 ELSE 0 END) AS active_count, ")
+            .append("COALESCE(SUM(numeric_value), 0) AS value_sum, ")
+            .append("MIN(numeric_value) AS value_min, ")
+            .append("MAX(numeric_value) AS value_max");
+        for (int bin = 0; bin < BIN_COUNT; bin++) {
+            String condition;
+            if (bin == 0) {
+                condition = "numeric_value < " + BIN_WIDTH;
+            } else if (bin == BIN_COUNT - 1) {
+                condition = "numeric_value >= " + bin * BIN_WIDTH;
+            } else {
+                condition = "numeric_value >= " + bin * BIN_WIDTH + " AND numeric_value < " + (bin + 1) * BIN_WIDTH;
+            }
+            sql.append(", SUM(CASE WHEN ").append(condition).append(" THEN 1 ELSE 0 END) AS ").append(binColumn(bin));
+        }
+        return sql.append(" FROM clinic_activity_logs WHERE id > ? AND id <= ? AND event_timestamp IS NOT NULL")
+            .append(" GROUP BY ").append(bucket).append(", COALESCE(activity_type, '')")
+            .toString();
+    }
+
+    static String upsertSql(String dialect, Granularity granularity) {
+        String aggregate = aggregateSql(dialect, granularity);
+        String[] additive = new String[BIN_COUNT + 3];
+        additive[0] = "row_count";
+        additive[1] = "active_count";
+        additive[2] = "value_sum";
+        for (int bin = 0; bin < BIN_COUNT; bin++) {
+            additive[bin + 3] = binColumn(bin);
+        }
+        StringBuilder updates = new StringBuilder();
+        if ("PostgreSQL".equalsIgnoreCase(dialect)) {
+            for (String column : additive) {
+                updates.append(column).append(" = ").append(TABLE).append('.').append(column).append(" + EXCLUDED.").append(column).append(", ");
+            }
+            updates.append("value_min = ").append(minMax(TABLE + ".value_min", "EXCLUDED.value_min", "LEAST")).append(", ")
+                .append("value_max = ").append(minMax(TABLE + ".value_max", "EXCLUDED.value_max", "GREATEST"));
+            return "INSERT INTO " + TABLE + " (" + columns() + ") " + aggregate +
+                " ON CONFLICT (granularity, bucket_start, activity_type) DO UPDATE SET " + updates;
+        }
+        if ("MySQL".equalsIgnoreCase(dialect) || "MariaDB".equalsIgnoreCase(dialect)) {
+            for (String column : additive) {
+                updates.append(column).append(" = ").append(column).append(" + VALUES(").append(column).append("), ");
+            }
+            updates.append("value_min = ").append(minMax("value_min", "VALUES(value_min)", "LEAST")).append(", ")
+                .append("value_max = ").append(minMax("value_max", "VALUES(value_max)", "GREATEST"));
+            return "INSERT INTO " + TABLE + " (" + columns() + ") " + aggregate +
+                " ON DUPLICATE KEY UPDATE " + updates;
+        }
+        // standard MERGE, e.g. H2 and HSQLDB
+        for (String column : additive) {
+            updates.append(column).append(" = r.").append(column).append(" + s.").append(column).append(", ");
+        }
+        updates.append("value_min = ").append(minMax("r.value_min", "s.value_min", "LEAST")).append(", ")
+            .append("value_max = ").append(minMax("r.value_max", "s.value_max", "GREATEST"));
+        StringBuilder values = new StringBuilder();
+        for (String column : columns().split(", ")) {
+            values.append(values.length() > 0 ? ", " : "").append("s.").append(column);
+        }
+        return "MERGE INTO " + TABLE + " r USING (" + aggregate + ") s" +
+            " ON (r.granularity = s.granularity AND r.bucket_start = s.bucket_start AND r.activity_type = s.activity_type)" +
+            " WHEN MATCHED THEN UPDATE SET " + updates +
+            " WHEN NOT MATCHED THEN INSERT (" + columns() + ") VALUES (" + values + ")";
+    }
+
+    // LEAST/GREATEST return NULL for a NULL argument on some databases
+    private static String minMax(String current, String added, String function) {
+        return function + "(COALESCE(" + current + ", " + added + "), COALESCE(" + added + ", " + current + "))";
+    }
+}
@@ -0,0 +1,162 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Allocation-light generator of synthetic clinic activity log rows, used instead of Faker
+ * on the population hot path. Values come from a {@link SplittableRandom} and precomputed
+ * word tables, so a generator created with the same seed and anchor always produces the
+ * same rows.
+ * <p>
+ * A generator is a mutable cursor: {@link #next()} advances to a new row whose values are
+ * then read through the getters. The payload is built in a reused buffer and is only valid
+ * until the next call. Instances are not thread-safe; use one per partition.
+ */
+public class ClinicActivityRowGenerator {
+
+    // List of 15 possible activity types
+    public static final List<String> ACTIVITY_TYPES = List.of(
+            "Patient Check-in", "Patient Check-out", "Appointment Scheduling", "Medical Record Update",
+            "Prescription Issuance", "Lab Test Order", "Lab Test Result Review", "Billing Generation",
+            "Payment Processing", "Inventory Check", "Staff Shift Start", "Staff Shift End",
+            "Emergency Alert", "Consultation Note", "Follow-up Reminder"
+    );
+
+    private static final String[] WORDS = {
+            "alias", "consequatur", "aut", "perferendis", "sit", "voluptatem", "accusantium", "doloremque",
+            "aperiam", "eaque", "ipsa", "quae", "ab", "illo", "inventore", "veritatis", "et", "quasi",
+            "architecto", "beatae", "vitae", "dicta", "sunt", "explicabo", "aspernatur", "odit", "fugit",
+            "sed", "quia", "consequuntur", "magni", "dolores", "eos", "qui", "ratione", "sequi", "nesciunt",
+            "neque", "dolorem", "ipsum", "dolor", "amet", "consectetur", "adipisci", "velit", "non",
+            "numquam", "eius", "modi", "tempora", "incidunt", "ut", "labore", "dolore", "magnam", "aliquam",
+            "quaerat", "enim", "ad", "minima", "veniam", "quis", "nostrum", "exercitationem", "ullam",
+            "corporis", "nemo", "ipsam", "voluptas", "suscipit", "laboriosam", "nisi", "aliquid", "ex", "ea",
+            "commodi", "autem", "vel", "eum", "iure", "reprehenderit", "in", "voluptate", "esse", "quam",
+            "nihil", "molestiae", "iusto", "odio", "dignissimos", "ducimus", "blanditiis", "praesentium",
+            "laudantium", "totam", "rem", "voluptatum", "deleniti", "atque", "corrupti", "quos", "quas",
+            "molestias", "excepturi", "sint", "occaecati", "cupiditate", "provident", "perspiciatis", "unde",
+            "omnis", "iste", "natus", "error", "similique", "culpa", "officia", "deserunt", "mollitia",
+            "animi", "id", "est", "laborum", "dolorum", "fuga", "harum", "quidem", "rerum", "facilis",
+            "expedita", "distinctio", "nam", "libero", "tempore", "cum", "soluta", "nobis", "eligendi",
+            "optio", "cumque", "impedit", "quo", "porro", "quisquam", "minus", "quod", "maxime", "placeat",
+            "facere", "possimus", "assumenda", "repellendus", "temporibus", "quibusdam", "illum",
+            "fugiat", "nulla", "pariatur", "at", "vero", "accusamus", "officiis", "debitis", "necessitatibus",
+            "saepe", "eveniet", "voluptates", "repudiandae", "recusandae", "itaque", "earum", "hic", "tenetur",
+            "a", "sapiente", "delectus", "reiciendis", "voluptatibus", "maiores", "doloribus", "asperiores",
+            "repellat"
+    };
+
+    private static final String[] CAPITALIZED_WORDS = new String[WORDS.length];
+
+    static {
+        for (int i = 0; i < WORDS.length; i++) {
+            CAPITALIZED_WORDS[i] = Character.toUpperCase(WORDS[i].charAt(0)) + WORDS[i].substring(1);
+        }
+    }
+
+    private static final int MIN_NUMERIC_VALUE = 1;
+    private static final int MAX_NUMERIC_VALUE = 100_000; // exclusive, matches Faker numberBetween(1, 100_000)
+    private static final long PAST_WINDOW_SECONDS = 5L * 365 * 86_400;
+    private static final long PARTITION_SEED_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final SplittableRandom random;
+    private final long anchorEpochSecond;
+    private final StringBuilder payload = new StringBuilder(2048);
+
+    private int activityTypeIndex;
+    private int numericValue;
+    private long eventTimestampSeconds;
+    private boolean statusFlag;
+
+    /**
+     * @param seed the random seed
+     * @param anchorEpochSecond the newest possible event time, as local date-time seconds
+     * since 1970-01-01T00:00; events are spread over the five years before it
+     */
+    public ClinicActivityRowGenerator(long seed, long anchorEpochSecond) {
+        this.random = new SplittableRandom(seed);
+        this.anchorEpochSecond = anchorEpochSecond;
+    }
+
+    /**
+     * Creates the generator for one partition of a run so that partitions produce
+     * different, but still reproducible, rows for the same run seed.
+     */
+    public static ClinicActivityRowGenerator forPartition(long seed, int partition, long anchorEpochSecond) {
+        return new ClinicActivityRowGenerator(seed + PARTITION_SEED_GAMMA * (partition + 1), anchorEpochSecond);
+    }
+
+    /**
+     * @return the current local date-time truncated to the start of the day, so runs with
+     * the same seed on the same day generate the same timestamps
+     */
+    public static long defaultAnchorEpochSecond() {
+        return LocalDateTime.now().toLocalDate().atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public void next() {
+        activityTypeIndex = random.nextInt(ACTIVITY_TYPES.size());
+        numericValue = random.nextInt(MIN_NUMERIC_VALUE, MAX_NUMERIC_VALUE);
+        eventTimestampSeconds = anchorEpochSecond - random.nextLong(PAST_WINDOW_SECONDS);
+        statusFlag = random.nextBoolean();
+        fillPayload();
+    }
+
+    // One or two paragraphs of 3-5 sentences with 3-9 words each, like Faker's lorem paragraphs.
+    private void fillPayload() {
+        payload.setLength(0);
+        int paragraphs = 1 + random.nextInt(2);
+        for (int p = 0; p < paragraphs; p++) {
+            int sentences = 3 + random.nextInt(3);
+            for (int s = 0; s < sentences; s++) {
+                if (payload.length() > 0) {
+                    payload.append(' ');
+                }
+                int words = 3 + random.nextInt(7);
+                payload.append(CAPITALIZED_WORDS[random.nextInt(WORDS.length)]);
+                for (int w = 1; w < words; w++) {
+                    payload.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                payload.append('.');
+            }
+        }
+    }
+
+    public int getActivityTypeIndex() {
+        return activityTypeIndex;
+    }
+
+    public String getActivityType() {
+        return ACTIVITY_TYPES.get(activityTypeIndex);
+    }
+
+    public int getNumericValue() {
+        return numericValue;
+    }
+
+    /**
+     * @return the event time as local date-time seconds since 1970-01-01T00:00
+     */
+    public long getEventTimestampSeconds() {
+        return eventTimestampSeconds;
+    }
+
+    public Timestamp getEventTimestamp() {
+        return Timestamp.valueOf(LocalDateTime.ofEpochSecond(eventTimestampSeconds, 0, ZoneOffset.UTC));
+    }
+
+    public boolean isStatusFlag() {
+        return statusFlag;
+    }
+
+    /**
+     * @return the payload of the current row, backed by a buffer reused by {@link #next()}
+     */
+    public CharSequence getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,434 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Owns the DDL of the clinic_activity_logs table: recreating it in a given
+ * {@link ClinicActivitySchemaMode}, building the query indexes after a bulk load and
+ * reporting how those indexes are used.
+ * <p>
+ * Indexes are deliberately created after the data is loaded: building an index once over
+ * the finished table is much cheaper than maintaining it row by row during COPY.
+ * <p>
+ * On PostgreSQL a reload can go through {@value #STAGING_TABLE}: an UNLOGGED copy of the
+ * table is loaded and indexed next to the live one and then swapped in by renaming, so
+ * readers never see an empty or half-loaded table and no dead tuples are left behind.
+ */
+@Service
+public class ClinicActivitySchemaManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicActivitySchemaManager.class);
+
+    static final String TABLE = "clinic_activity_logs";
+    static final String STAGING_SUFFIX = "_staging";
+    static final String STAGING_TABLE = TABLE + STAGING_SUFFIX;
+    private static final String RETIRED_TABLE = TABLE + "_retired";
+    static final String EVENT_TIMESTAMP_INDEX = "idx_clinic_activity_event_timestamp";
+    static final String TYPE_STATUS_VALUE_INDEX = "idx_clinic_activity_type_status_value";
+    static final String NUMERIC_VALUE_INDEX = "idx_clinic_activity_numeric_value";
+    private static final List<String> INDEXES = List.of(EVENT_TIMESTAMP_INDEX, TYPE_STATUS_VALUE_INDEX, NUMERIC_VALUE_INDEX);
+    static final String ROLLUP_TABLE = "clinic_activity_rollups";
+    static final String ROLLUP_WATERMARK_TABLE = "clinic_activity_rollup_watermark";
+
+    // BRIN only pays off when rows are stored roughly in event_timestamp order
+    private static final double BRIN_MIN_CORRELATION = 0.9;
+    private static final int PARTITION_HISTORY_YEARS = 5;
+    private static final int LATENCY_SAMPLES = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final ClinicActivitySchemaMode defaultMode;
+    private final ClinicActivityQueryCache queryCache;
+    private final ClinicActivityCounters counters;
+
+    @Autowired
+    public ClinicActivitySchemaManager(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                                       ClinicActivityQueryCache queryCache,
+                                       ClinicActivityCounters counters,
+                                       @Value("${clinic-activity.schema.mode:plain}") String defaultMode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.queryCache = queryCache;
+        this.counters = counters;
+        this.defaultMode = ClinicActivitySchemaMode.fromParameter(defaultMode);
+    }
+
+    /**
+     * @return the schema mode used when a recreate request does not ask for one
+     */
+    public ClinicActivitySchemaMode getDefaultMode() {
+        return defaultMode;
+    }
+
+    /**
+     * Drops and recreates the table without secondary indexes; call {@link #createIndexes()}
+     * once the table has been populated if the mode asks for them.
+     */
+    public void recreateTable(ClinicActivitySchemaMode mode) {
+        if (mode == ClinicActivitySchemaMode.PARTITIONED && !isPostgres()) {
+            throw new IllegalArgumentException("Partitioned schema mode is only supported on PostgreSQL.");
+        }
+
+        // Drop the table
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE);
+        logger.info("Table '{}' dropped successfully.", TABLE);
+
+        // Recreate the table
+        createTable(TABLE, mode, false);
+        // ids start over, so rollups of the old rows would be counted twice
+        clearRollups();
+        queryCache.invalidateAll();
+        counters.resetAfterCommit();
+        logger.info("Table '{}' created successfully in {} mode.", TABLE, mode);
+    }
+
+    /**
+     * Empties the table with TRUNCATE, which frees the storage at once instead of leaving
+     * a dead tuple (and WAL record) per deleted row like DELETE.
+     */
+    public void truncateTable() {
+        jdbcTemplate.execute("TRUNCATE TABLE " + TABLE);
+        clearRollups();
+        queryCache.invalidateAll();
+        counters.resetAfterCommit();
+        logger.info("Table '{}' truncated.", TABLE);
+    }
+
+    /**
+     * Whether {@link #createStagingTable} supports the mode on this database.
+     */
+    public boolean supportsStagingReload(ClinicActivitySchemaMode mode) {
+        return mode != ClinicActivitySchemaMode.PARTITIONED && isPostgres();
+    }
+
+    /**
+     * Creates an empty UNLOGGED {@value #STAGING_TABLE} to load a replacement of the table
+     * into, dropping a leftover one from an earlier failed reload.
+     * @throws IllegalArgumentException if {@link #supportsStagingReload} is false
+     */
+    public void createStagingTable(ClinicActivitySchemaMode mode) {
+        if (!supportsStagingReload(mode)) {
+            throw new IllegalArgumentException("Reloading through a staging table needs PostgreSQL and a plain or indexed schema mode.");
+        }
+        dropStagingTable();
+        createTable(STAGING_TABLE, mode, true);
+        logger.info("Staging table '{}' created.", STAGING_TABLE);
+    }
+
+    public void dropStagingTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + STAGING_TABLE);
+    }
+
+    /**
+     * Builds the indexes of {@link #createIndexes()} on the staging table, under names that
+     * get their regular names when it is swapped in.
+     */
+    public List<String> createStagingIndexes() {
+        return createIndexes(STAGING_TABLE, STAGING_SUFFIX);
+    }
+
+    /**
+     * Makes the staging table durable and replaces the live table with it. The renames run
+     * in one transaction, so readers see either the old or the new table; the old table is
+     * dropped in the same transaction and all indexes, the primary key and the id sequence
+     * take over the regular names so the next reload can reuse the staging names.
+     * <p>
+     * Only the PostgreSQL staging table is UNLOGGED and owns a named key and sequence; on
+     * other databases just the tables and indexes are renamed, and databases that commit
+     * DDL right away, like H2, do not make the swap atomic.
+     */
+    public void swapInStaging() {
+        long startTime = System.currentTimeMillis();
+        boolean postgres = isPostgres();
+        if (postgres) {
+            // rewrites the table into the WAL once, outside of the swap transaction
+            jdbcTemplate.execute("ALTER TABLE " + STAGING_TABLE + " SET LOGGED");
+        }
+        long loggedMillis = System.currentTimeMillis() - startTime;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + RETIRED_TABLE);
+                statement.execute("ALTER TABLE IF EXISTS " + TABLE + " RENAME TO " + RETIRED_TABLE);
+                statement.execute("ALTER TABLE " + STAGING_TABLE + " RENAME TO " + TABLE);
+                statement.execute("DROP TABLE IF EXISTS " + RETIRED_TABLE);
+                if (postgres) {
+                    statement.execute("ALTER INDEX IF EXISTS " + STAGING_TABLE + "_pkey RENAME TO " + TABLE + "_pkey");
+                }
+                for (String index : INDEXES) {
+                    statement.execute("ALTER INDEX IF EXISTS " + index + STAGING_SUFFIX + " RENAME TO " + index);
+                }
+                if (postgres) {
+                    statement.execute("ALTER SEQUENCE IF EXISTS " + STAGING_TABLE + "_id_seq RENAME TO " + TABLE + "_id_seq");
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error swapping in '" + STAGING_TABLE + "': " + e.getMessage(), e);
+        }
+        // ids start over, like after recreateTable
+        clearRollups();
+        queryCache.invalidateAll();
+        // the table is not empty, so the counters are rebuilt from it on the next read
+        counters.markStale();
+        logger.info("Swapped '{}' in as '{}' ({} ms to set it logged, {} ms in total).",
+            STAGING_TABLE, TABLE, loggedMillis, System.currentTimeMillis() - startTime);
+    }
+
+    private void createTable(String table, ClinicActivitySchemaMode mode, boolean unlogged) {
+        if (mode == ClinicActivitySchemaMode.PARTITIONED) {
+            createPartitionedTable(table);
+            return;
+        }
+        jdbcTemplate.execute("CREATE " + (unlogged ? "UNLOGGED " : "") + "TABLE " + table + " (" +
+            "id SERIAL PRIMARY KEY," +
+            "activity_type VARCHAR(255)," +
+            "numeric_value INTEGER," +
+            "event_timestamp TIMESTAMP," +
+            "status_flag BOOLEAN," +
+            "payload TEXT" +
+            ")");
+    }
+
+    /**
+     * Creates the rollup table of {@link ClinicActivityRollupService} and its watermark
+     * (the highest log id already rolled up) if they do not exist yet.
+     */
+    public void ensureRollupTables() {
+        StringBuilder bins = new StringBuilder();
+        for (int bin = 0; bin < ClinicActivityRollupService.BIN_COUNT; bin++) {
+            bins.append(ClinicActivityRollupService.binColumn(bin)).append(" BIGINT NOT NULL,");
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + ROLLUP_TABLE + " (" +
+            "granularity VARCHAR(8) NOT NULL," +
+            "bucket_start TIMESTAMP NOT NULL," +
+            "activity_type VARCHAR(255) NOT NULL," +
+            "row_count BIGINT NOT NULL," +
+            "active_count BIGINT NOT NULL," +
+            "value_sum BIGINT NOT NULL," +
+            "value_min INTEGER," +
+            "value_max INTEGER," +
+            bins +
+            "PRIMARY KEY (granularity, bucket_start, activity_type)" +
+            ")");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + ROLLUP_WATERMARK_TABLE + " (" +
+            "id INTEGER PRIMARY KEY," +
+            "last_log_id BIGINT NOT NULL" +
+            ")");
+        Integer watermarks = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + ROLLUP_WATERMARK_TABLE, Integer.class);
+        if (watermarks == null || watermarks == 0) {
+            jdbcTemplate.update("INSERT INTO " + ROLLUP_WATERMARK_TABLE + " (id, last_log_id) VALUES (1, 0)");
+        }
+    }
+
+    /**
+     * Empties the rollups and rewinds their watermark, for writes that empty the log table.
+     */
+    public void clearRollups() {
+        ensureRollupTables();
+        jdbcTemplate.update("DELETE FROM " + ROLLUP_TABLE);
+        jdbcTemplate.update("UPDATE " + ROLLUP_WATERMARK_TABLE + " SET last_log_id = 0");
+    }
+
+    // The primary key of a partitioned table has to include the partition key. Partitions
+    // cover the window of ClinicActivityRowGenerator; a default partition takes the rest.
+    private void createPartitionedTable(String table) {
+        jdbcTemplate.execute("CREATE TABLE " + table + " (" +
+            "id SERIAL," +
+            "activity_type VARCHAR(255)," +
+            "numeric_value INTEGER," +
+            "event_timestamp TIMESTAMP NOT NULL," +
+            "status_flag BOOLEAN," +
+            "payload TEXT," +
+            "PRIMARY KEY (id, event_timestamp)" +
+            ") PARTITION BY RANGE (event_timestamp)");
+
+        LocalDate today = LocalDate.now();
+        LocalDate month = today.minusYears(PARTITION_HISTORY_YEARS).withDayOfMonth(1);
+        LocalDate end = today.plusMonths(1).withDayOfMonth(1);
+        int partitions = 0;
+        while (month.isBefore(end)) {
+            LocalDate next = month.plusMonths(1);
+            jdbcTemplate.execute(String.format(Locale.ROOT,
+                "CREATE TABLE %s_y%04dm%02d PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                table, month.getYear(), month.getMonthValue(), table, month, next));
+            month = next;
+            partitions++;
+        }
+        jdbcTemplate.execute("CREATE TABLE " + table + "_default PARTITION OF " + table + " DEFAULT");
+        logger.info("Created {} monthly partitions and a default partition for '{}'.", partitions, table);
+    }
+
+    /**
+     * Builds the query indexes that do not exist yet and refreshes planner statistics:
+     * <ul>
+     * <li>event_timestamp: BRIN on PostgreSQL when the column is physically correlated with
+     * the row order, a B-tree otherwise</li>
+     * <li>(activity_type, status_flag, numeric_value): equality filters first, then the range</li>
+     * <li>numeric_value: the {@code query-logs} lookup</li>
+     * </ul>
+     * @return the names of the indexes that were created (on PostgreSQL, that now exist)
+     */
+    public List<String> createIndexes() {
+        return createIndexes(TABLE, "");
+    }
+
+    private List<String> createIndexes(String table, String nameSuffix) {
+        long startTime = System.currentTimeMillis();
+        boolean postgres = isPostgres();
+        List<String> created = new ArrayList<>();
+        if (postgres) {
+            jdbcTemplate.execute("ANALYZE " + table);
+        }
+        String timestampIndexMethod = postgres && isEventTimestampCorrelated(table) ? " USING BRIN" : "";
+        createIndex(postgres, table, EVENT_TIMESTAMP_INDEX + nameSuffix, timestampIndexMethod + " (event_timestamp)", created);
+        createIndex(postgres, table, TYPE_STATUS_VALUE_INDEX + nameSuffix, " (activity_type, status_flag, numeric_value)", created);
+        createIndex(postgres, table, NUMERIC_VALUE_INDEX + nameSuffix, " (numeric_value)", created);
+        if (postgres) {
+            jdbcTemplate.execute("ANALYZE " + table);
+        }
+        logger.info("Created indexes {} on '{}' in {} ms.", created, table, (System.currentTimeMillis() - startTime));
+        return created;
+    }
+
+    private void createIndex(boolean postgres, String table, String name, String definition, List<String> created) {
+        if (postgres) {
+            // IF NOT EXISTS is not available on every database, so only PostgreSQL relies on it
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + name + " ON " + table + definition);
+        } else if (!indexExists(name)) {
+            jdbcTemplate.execute("CREATE INDEX " + name + " ON " + table + definition);
+        } else {
+            return;
+        }
+        created.add(name);
+    }
+
+    private boolean isEventTimestampCorrelated(String table) {
+        List<Double> correlations = jdbcTemplate.queryForList(
+            "SELECT correlation FROM pg_stats WHERE tablename = ? AND attname = 'event_timestamp'", Double.class, table);
+        return !correlations.isEmpty() && correlations.get(0) != null
+            && Math.abs(correlations.get(0)) >= BRIN_MIN_CORRELATION;
+    }
+
+    /**
+     * @return per-index scan counters (PostgreSQL) or the index names from the JDBC metadata
+     * (other databases), together with the current latency of the probe queries
+     */
+    public Map<String, Object> getIndexUsage() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        if (isPostgres()) {
+            report.put("indexes", jdbcTemplate.queryForList(
+                "SELECT relname AS table_name, indexrelname AS index_name, idx_scan, idx_tup_read, idx_tup_fetch, " +
+                    "pg_relation_size(indexrelid) AS size_bytes " +
+                    "FROM pg_stat_user_indexes WHERE relname = ? OR relname LIKE ? ORDER BY relname, indexrelname",
+                TABLE, TABLE + "\\_%"));
+        } else {
+            report.put("indexes", indexNames());
+        }
+        report.put("latencyMillis", measureQueryLatency());
+        return report;
+    }
+
+    /**
+     * Median latency of the queries the indexes are meant for, in milliseconds.
+     */
+    public Map<String, Long> measureQueryLatency() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Long> latency = new LinkedHashMap<>();
+        latency.put("numeric-value-lookup", medianMillis(
+            "SELECT id, activity_type, numeric_value, event_timestamp, status_flag, payload FROM " + TABLE + " WHERE numeric_value = ?",
+            50000));
+        latency.put("complex-criteria", medianMillis(
+            "SELECT id FROM " + TABLE + " WHERE activity_type = ? AND numeric_value >= ? AND numeric_value <= ? " +
+                "AND event_timestamp >= ? AND event_timestamp < ? AND status_flag = ?",
+            ClinicActivityRowGenerator.ACTIVITY_TYPES.get(0), 1000, 20000,
+            Timestamp.valueOf(now.minusDays(90)), Timestamp.valueOf(now), true));
+        latency.put("recent-events-count", medianMillis(
+            "SELECT COUNT(*) FROM " + TABLE + " WHERE event_timestamp >= ?", Timestamp.valueOf(now.minusDays(7))));
+        return latency;
+    }
+
+    private long medianMillis(String sql, Object... args) {
+        long[] samples = new long[LATENCY_SAMPLES];
+        for (int i = 0; i < LATENCY_SAMPLES; i++) {
+            long start = System.nanoTime();
+            jdbcTemplate.queryForList(sql, args);
+            samples[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(samples);
+        return samples[LATENCY_SAMPLES / 2];
+    }
+
+    private boolean indexExists(String name) {
+        return indexNames().stream().anyMatch(name::equalsIgnoreCase);
+    }
+
+    private List<String> indexNames() {
+        return withMetaData(metaData -> {
+            List<String> names = new ArrayList<>();
+            // unquoted identifiers are stored upper case by H2/HSQLDB and as written by MySQL
+            for (String table : new String[]{TABLE, TABLE.toUpperCase(Locale.ROOT)}) {
+                try (ResultSet rs = metaData.getIndexInfo(null, null, table, false, true)) {
+                    while (rs.next()) {
+                        String name = rs.getString("INDEX_NAME");
+                        if (name != null && !names.contains(name)) {
+                            names.add(name);
+                        }
+                    }
+                }
+            }
+            return names;
+        });
+    }
+
+    boolean isPostgres() {
+        return "PostgreSQL".equalsIgnoreCase(getDatabaseProductName());
+    }
+
+    String getDatabaseProductName() {
+        return withMetaData(DatabaseMetaData::getDatabaseProductName);
+    }
+
+    private <T> T withMetaData(MetaDataCallback<T> callback) {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        try {
+            return callback.apply(con.getMetaData());
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading database metadata: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    private interface MetaDataCallback<T> {
+        T apply(DatabaseMetaData metaData) throws SQLException;
+    }
+}
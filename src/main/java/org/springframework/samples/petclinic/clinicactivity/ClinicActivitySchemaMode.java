@@ -0,0 +1,31 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.util.Locale;
+
+/**
+ * Layout of the clinic_activity_logs table when it is recreated by
+ * {@link ClinicActivitySchemaManager}.
+ */
+public enum ClinicActivitySchemaMode {
+
+    /** Primary key only, every filtered query is a full scan. */
+    PLAIN,
+
+    /** Query indexes built after the bulk load. */
+    INDEXED,
+
+    /** Range-partitioned by month of event_timestamp (PostgreSQL only), indexed after the load. */
+    PARTITIONED;
+
+    boolean hasIndexes() {
+        return this != PLAIN;
+    }
+
+    public static ClinicActivitySchemaMode fromParameter(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported schema mode '" + value + "', expected plain, indexed or partitioned.", e);
+        }
+    }
+}
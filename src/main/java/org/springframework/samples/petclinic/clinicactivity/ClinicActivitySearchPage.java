@@ -0,0 +1,16 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One page of a criteria search, ordered by event timestamp and id; the next page starts
+ * after {@code (nextAfterTimestamp, nextAfterId)}.
+ */
+public record ClinicActivitySearchPage(List<ClinicActivityLogSummary> rows, LocalDateTime nextAfterTimestamp,
+                                       Integer nextAfterId) {
+
+    public boolean isHasMore() {
+        return nextAfterId != null;
+    }
+}
@@ -0,0 +1,151 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.samples.petclinic.system.ReadReplica;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keyset-paginated criteria search over clinic activity logs returning
+ * {@link ClinicActivityLogSummary} projections in read-only transactions.
+ * <p>
+ * A page can be fetched as several time slices queried in parallel, each on its own
+ * connection; as the slices are disjoint and ordered, concatenating them keeps the
+ * {@code (event_timestamp, id)} order. Every slice may return a full page, so this trades
+ * database work for latency on selective criteria over long time ranges.
+ */
+@Service
+public class ClinicActivitySearchService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicActivitySearchService.class);
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final ClinicActivityLogRepository repository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxSlices;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ClinicActivitySearchService(ClinicActivityLogRepository repository,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${clinic-activity.search.max-slices:4}") int maxSlices) {
+        this.repository = repository;
+        // results are not cached, so a lagging replica is only seen by this one request
+        this.readOnlyTransaction = ReadReplica.transactionTemplate(transactionManager);
+        this.maxSlices = Math.max(1, maxSlices);
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.maxSlices, runnable -> {
+            Thread thread = new Thread(runnable, "ClinicActivitySearch-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getMaxSlices() {
+        return maxSlices;
+    }
+
+    /**
+     * @param afterTimestamp with {@code afterId} the key of the last row of the previous
+     * page, or {@code null} for the first page
+     * @param afterId {@code null} exactly when {@code afterTimestamp} is
+     * @param limit page size, at most {@link #MAX_PAGE_SIZE}
+     * @param slices number of time slices queried in parallel, at most {@link #getMaxSlices()}
+     */
+    public ClinicActivitySearchPage search(ClinicActivityCriteria criteria, LocalDateTime afterTimestamp, Integer afterId,
+                                           int limit, boolean includePayload, int slices) {
+        if ((afterTimestamp == null) != (afterId == null)) {
+            throw new IllegalArgumentException("The page key needs both the timestamp and the id of the last row.");
+        }
+        LocalDateTime start = criteria.startDate();
+        int afterKey = Integer.MIN_VALUE;
+        if (afterTimestamp != null && !afterTimestamp.isBefore(start)) {
+            start = afterTimestamp;
+            afterKey = afterId;
+        }
+        if (!start.isBefore(criteria.endDate())) {
+            return new ClinicActivitySearchPage(List.of(), null, null);
+        }
+        // one extra row tells whether another page follows
+        List<ClinicActivityLogSummary> rows = slices > 1
+            ? fetchSlices(criteria.withRange(start, criteria.endDate()), afterKey, limit + 1, includePayload, slices)
+            : fetch(criteria.withRange(start, criteria.endDate()), start, afterKey, limit + 1, includePayload);
+        if (rows.size() <= limit) {
+            return new ClinicActivitySearchPage(rows, null, null);
+        }
+        List<ClinicActivityLogSummary> page = new ArrayList<>(rows.subList(0, limit));
+        ClinicActivityLogSummary last = page.get(limit - 1);
+        return new ClinicActivitySearchPage(page, last.eventTimestamp(), last.id());
+    }
+
+    private List<ClinicActivityLogSummary> fetchSlices(ClinicActivityCriteria criteria, int afterKey, int rows,
+                                                       boolean includePayload, int slices) {
+        slices = Math.min(slices, maxSlices);
+        Duration sliceLength = Duration.between(criteria.startDate(), criteria.endDate()).dividedBy(slices);
+        if (sliceLength.isZero()) {
+            return fetch(criteria, criteria.startDate(), afterKey, rows, includePayload);
+        }
+        List<Future<List<ClinicActivityLogSummary>>> futures = new ArrayList<>(slices);
+        for (int slice = 0; slice < slices; slice++) {
+            LocalDateTime sliceStart = criteria.startDate().plus(sliceLength.multipliedBy(slice));
+            LocalDateTime sliceEnd = slice == slices - 1 ? criteria.endDate() : sliceStart.plus(sliceLength);
+            // only the first slice starts at the page key, the others take everything from their start
+            int sliceAfterKey = slice == 0 ? afterKey : Integer.MIN_VALUE;
+            ClinicActivityCriteria sliceCriteria = criteria.withRange(sliceStart, sliceEnd);
+            futures.add(executor.submit(() -> fetch(sliceCriteria, sliceStart, sliceAfterKey, rows, includePayload)));
+        }
+        List<ClinicActivityLogSummary> merged = new ArrayList<>(rows);
+        try {
+            for (Future<List<ClinicActivityLogSummary>> future : futures) {
+                if (merged.size() >= rows) {
+                    future.cancel(true);
+                    continue;
+                }
+                List<ClinicActivityLogSummary> sliceRows = future.get();
+                merged.addAll(sliceRows.subList(0, Math.min(sliceRows.size(), rows - merged.size())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Interrupted while searching clinic activity logs", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Error searching clinic activity logs: " + e.getCause().getMessage(), e.getCause());
+        }
+        logger.debug("Merged {} clinic activity logs from {} parallel slices.", merged.size(), slices);
+        return merged;
+    }
+
+    private List<ClinicActivityLogSummary> fetch(ClinicActivityCriteria criteria, LocalDateTime afterTimestamp,
+                                                 int afterId, int rows, boolean includePayload) {
+        return readOnlyTransaction.execute(status -> includePayload
+            ? repository.findSummariesWithPayloadByCriteria(criteria.activityType(), criteria.minNumericValue(),
+                criteria.maxNumericValue(), criteria.startDate(), criteria.endDate(), criteria.statusFlag(),
+                afterTimestamp, afterId, Limit.of(rows))
+            : repository.findSummariesByCriteria(criteria.activityType(), criteria.minNumericValue(),
+                criteria.maxNumericValue(), criteria.startDate(), criteria.endDate(), criteria.statusFlag(),
+                afterTimestamp, afterId, Limit.of(rows)));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,235 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable columnar copy of clinic_activity_logs held in direct (off-heap) buffers: one
+ * int numeric_value, one long timestamp in microseconds since 1970-01-01T00:00 (local time,
+ * like the column), one byte activity type code and one status bit per row, about 13.2
+ * bytes per row. The payload is not kept.
+ * <p>
+ * The operators are plain loops over the columns without per-row allocation or branching
+ * on objects, so each aggregate is a single sequential pass over a few tens of megabytes.
+ */
+public final class ClinicActivitySnapshot {
+
+    /** Code of activity types outside {@link ClinicActivityRowGenerator#ACTIVITY_TYPES}, and of nulls. */
+    static final byte OTHER_TYPE = -1;
+    /** Type code that matches every row. */
+    static final int ANY_TYPE = Integer.MIN_VALUE;
+    /** Timestamp of rows without an event_timestamp; never inside a queried range. */
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final List<String> TYPES = ClinicActivityRowGenerator.ACTIVITY_TYPES;
+    private static final Map<String, Byte> TYPE_CODES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < TYPES.size(); i++) {
+            TYPE_CODES.put(TYPES.get(i), (byte) i);
+        }
+    }
+
+    private final int rows;
+    private final IntBuffer numericValues;
+    private final LongBuffer timestamps;
+    private final ByteBuffer types;
+    private final LongBuffer statusBits;
+    private final long offHeapBytes;
+    private final Instant loadedAt;
+    private final long loadMillis;
+
+    private ClinicActivitySnapshot(Builder builder, long loadMillis) {
+        this.rows = builder.rows;
+        this.numericValues = builder.numericValues.asReadOnlyBuffer();
+        this.timestamps = builder.timestamps.asReadOnlyBuffer();
+        this.types = builder.types.asReadOnlyBuffer();
+        this.statusBits = builder.statusBits.asReadOnlyBuffer();
+        this.offHeapBytes = builder.capacityBytes();
+        this.loadedAt = Instant.now();
+        this.loadMillis = loadMillis;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    /**
+     * @return the type code to filter on, {@link #ANY_TYPE} for {@code null}
+     * @throws IllegalArgumentException for types the snapshot does not distinguish
+     */
+    static int typeCode(String activityType) {
+        if (activityType == null) {
+            return ANY_TYPE;
+        }
+        Byte code = TYPE_CODES.get(activityType);
+        if (code == null) {
+            throw new IllegalArgumentException("Unknown activity type '" + activityType + "', expected any of " + TYPES + ".");
+        }
+        return code;
+    }
+
+    static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+
+    /**
+     * Rows per activity type in {@code [fromMicros, toMicros)}, optionally only those with
+     * the given status flag.
+     * @return counts indexed like {@link ClinicActivityRowGenerator#ACTIVITY_TYPES}, followed by
+     * the count of all other types
+     */
+    public long[] countByType(long fromMicros, long toMicros, Boolean statusFlag) {
+        long[] counts = new long[TYPES.size() + 1];
+        int other = TYPES.size();
+        for (int row = 0; row < rows; row++) {
+            long timestamp = timestamps.get(row);
+            if (timestamp < fromMicros || timestamp >= toMicros) {
+                continue;
+            }
+            if (statusFlag != null && status(row) != statusFlag) {
+                continue;
+            }
+            byte type = types.get(row);
+            counts[type >= 0 ? type : other]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Histogram of numeric_value in {@code [fromMicros, toMicros)} with {@code bins} equally
+     * wide bins over {@code [min, max]}; values outside are clamped into the outer bins.
+     */
+    public long[] histogram(long fromMicros, long toMicros, int typeCode, int bins, int min, int max) {
+        long[] histogram = new long[bins];
+        double binsPerValue = (double) bins / ((long) max - min + 1);
+        for (int row = 0; row < rows; row++) {
+            long timestamp = timestamps.get(row);
+            if (timestamp < fromMicros || timestamp >= toMicros || !matchesType(row, typeCode)) {
+                continue;
+            }
+            int bin = (int) ((numericValues.get(row) - (long) min) * binsPerValue);
+            histogram[Math.max(0, Math.min(bins - 1, bin))]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * Row count and status_flag = true count per window of {@code windowMicros}, starting at
+     * {@code fromMicros}.
+     * @return {@code [windows][2]}: total and flagged rows of each window
+     */
+    public long[][] statusByWindow(long fromMicros, long toMicros, long windowMicros, int typeCode) {
+        int windows = (int) ((toMicros - fromMicros + windowMicros - 1) / windowMicros);
+        long[][] counts = new long[windows][2];
+        for (int row = 0; row < rows; row++) {
+            long timestamp = timestamps.get(row);
+            if (timestamp < fromMicros || timestamp >= toMicros || !matchesType(row, typeCode)) {
+                continue;
+            }
+            long[] window = counts[(int) ((timestamp - fromMicros) / windowMicros)];
+            window[0]++;
+            if (status(row)) {
+                window[1]++;
+            }
+        }
+        return counts;
+    }
+
+    private boolean matchesType(int row, int typeCode) {
+        return typeCode == ANY_TYPE || types.get(row) == typeCode;
+    }
+
+    private boolean status(int row) {
+        return (statusBits.get(row >>> 6) & (1L << row)) != 0;
+    }
+
+    /**
+     * Appends rows into direct buffers, growing them by half when full. Not thread-safe.
+     */
+    static final class Builder {
+
+        private int rows;
+        private IntBuffer numericValues;
+        private LongBuffer timestamps;
+        private ByteBuffer types;
+        private LongBuffer statusBits;
+
+        Builder(int expectedRows) {
+            allocate(Math.max(1024, expectedRows));
+        }
+
+        void add(String activityType, int numericValue, long epochMicros, boolean statusFlag) {
+            Byte code = activityType != null ? TYPE_CODES.get(activityType) : null;
+            add(code != null ? code : OTHER_TYPE, numericValue, epochMicros, statusFlag);
+        }
+
+        void add(byte typeCode, int numericValue, long epochMicros, boolean statusFlag) {
+            if (rows == numericValues.capacity()) {
+                allocate(rows + (rows >> 1));
+            }
+            numericValues.put(rows, numericValue);
+            timestamps.put(rows, epochMicros);
+            types.put(rows, typeCode);
+            if (statusFlag) {
+                statusBits.put(rows >>> 6, statusBits.get(rows >>> 6) | (1L << rows));
+            }
+            rows++;
+        }
+
+        int getRows() {
+            return rows;
+        }
+
+        ClinicActivitySnapshot build(long loadMillis) {
+            return new ClinicActivitySnapshot(this, loadMillis);
+        }
+
+        private long capacityBytes() {
+            return numericValues.capacity() * 4L + timestamps.capacity() * 8L + types.capacity()
+                + statusBits.capacity() * 8L;
+        }
+
+        private void allocate(int capacity) {
+            IntBuffer newNumericValues = ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+            LongBuffer newTimestamps = ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+            ByteBuffer newTypes = ByteBuffer.allocateDirect(capacity);
+            LongBuffer newStatusBits = ByteBuffer.allocateDirect(((capacity + 63) >>> 6) * 8)
+                .order(ByteOrder.nativeOrder()).asLongBuffer();
+            if (numericValues != null) {
+                newNumericValues.put(numericValues.position(0).limit(rows));
+                newTimestamps.put(timestamps.position(0).limit(rows));
+                newTypes.put(types.position(0).limit(rows));
+                newStatusBits.put(statusBits.position(0).limit((rows + 63) >>> 6));
+                newNumericValues.clear();
+                newTimestamps.clear();
+                newTypes.clear();
+                newStatusBits.clear();
+            }
+            numericValues = newNumericValues;
+            timestamps = newTimestamps;
+            types = newTypes;
+            statusBits = newStatusBits;
+        }
+    }
+}
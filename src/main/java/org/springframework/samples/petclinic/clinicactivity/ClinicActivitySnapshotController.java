@@ -0,0 +1,178 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Analytics over the in-memory {@link ClinicActivitySnapshot}. Nothing is loaded until
+ * {@code POST /api/clinic-activity/snapshot/refresh} is called; results reflect the table
+ * as of the last refresh.
+ */
+@RestController
+@RequestMapping("/api/clinic-activity/snapshot")
+public class ClinicActivitySnapshotController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicActivitySnapshotController.class);
+
+    private static final int MAX_BINS = 1000;
+    private static final int MAX_WINDOWS = 10_000;
+
+    private final ClinicActivitySnapshotService snapshotService;
+
+    @Autowired
+    public ClinicActivitySnapshotController(ClinicActivitySnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    @PostMapping(value = "/refresh", produces = "application/json")
+    public ResponseEntity<?> refresh() {
+        logger.info("Received request to refresh the clinic activity snapshot.");
+        try {
+            return ResponseEntity.ok(describe(snapshotService.refresh()));
+        } catch (Exception e) {
+            logger.error("Error during clinic activity snapshot refresh", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error during snapshot refresh: " + e.getMessage());
+        }
+    }
+
+    @GetMapping(produces = "application/json")
+    public ResponseEntity<?> getSnapshot() {
+        return withSnapshot(this::describe);
+    }
+
+    @GetMapping(value = "/counts-by-type", produces = "application/json")
+    public ResponseEntity<?> countsByType(
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = "status_flag", required = false) Boolean statusFlag) {
+        return withSnapshot(snapshot -> {
+            long start = System.nanoTime();
+            long[] counts = snapshot.countByType(fromMicros(from), toMicros(to), statusFlag);
+            Map<String, Long> byType = new LinkedHashMap<>();
+            for (int type = 0; type < ClinicActivityRowGenerator.ACTIVITY_TYPES.size(); type++) {
+                byType.put(ClinicActivityRowGenerator.ACTIVITY_TYPES.get(type), counts[type]);
+            }
+            byType.put("other", counts[counts.length - 1]);
+            return result(byType, start);
+        });
+    }
+
+    @GetMapping(value = "/histogram", produces = "application/json")
+    public ResponseEntity<?> histogram(
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = "activity_type", required = false) String activityType,
+            @RequestParam(name = "bins", defaultValue = "20") int bins,
+            @RequestParam(name = "min", defaultValue = "1") int min,
+            @RequestParam(name = "max", defaultValue = "100000") int max) {
+        if (bins <= 0 || bins > MAX_BINS) {
+            return ResponseEntity.badRequest().body("Bins must be between 1 and " + MAX_BINS + ".");
+        }
+        if (min > max) {
+            return ResponseEntity.badRequest().body("'min' must not be greater than 'max'.");
+        }
+        int typeCode;
+        try {
+            typeCode = ClinicActivitySnapshot.typeCode(activityType);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return withSnapshot(snapshot -> {
+            long start = System.nanoTime();
+            return result(snapshot.histogram(fromMicros(from), toMicros(to), typeCode, bins, min, max), start);
+        });
+    }
+
+    @GetMapping(value = "/status-ratio", produces = "application/json")
+    public ResponseEntity<?> statusRatio(
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = "window", defaultValue = "1d") String windowParameter,
+            @RequestParam(name = "activity_type", required = false) String activityType) {
+        Duration window;
+        try {
+            window = DurationStyle.detectAndParse(windowParameter);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Unsupported window '" + windowParameter + "', expected e.g. 1h or 1d.");
+        }
+        if (!from.isBefore(to) || window.isNegative() || window.isZero()) {
+            return ResponseEntity.badRequest().body("'from' must be before 'to' and the window must be positive.");
+        }
+        if (Duration.between(from, to).dividedBy(window) >= MAX_WINDOWS) {
+            return ResponseEntity.badRequest().body("At most " + MAX_WINDOWS + " windows can be requested.");
+        }
+        int typeCode;
+        try {
+            typeCode = ClinicActivitySnapshot.typeCode(activityType);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        long windowMicros = window.toNanos() / 1_000;
+        return withSnapshot(snapshot -> {
+            long start = System.nanoTime();
+            long[][] counts = snapshot.statusByWindow(fromMicros(from), toMicros(to), windowMicros, typeCode);
+            List<Map<String, Object>> windows = new ArrayList<>(counts.length);
+            for (int i = 0; i < counts.length; i++) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("windowStart", from.plus(window.multipliedBy(i)));
+                entry.put("total", counts[i][0]);
+                entry.put("flagged", counts[i][1]);
+                entry.put("ratio", counts[i][0] == 0 ? 0.0 : (double) counts[i][1] / counts[i][0]);
+                windows.add(entry);
+            }
+            return result(windows, start);
+        });
+    }
+
+    private ResponseEntity<?> withSnapshot(Function<ClinicActivitySnapshot, Object> query) {
+        ClinicActivitySnapshot snapshot = snapshotService.getSnapshot();
+        if (snapshot == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("No clinic activity snapshot loaded, POST /api/clinic-activity/snapshot/refresh first.");
+        }
+        return ResponseEntity.ok(query.apply(snapshot));
+    }
+
+    private Map<String, Object> describe(ClinicActivitySnapshot snapshot) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("rows", snapshot.getRows());
+        description.put("offHeapBytes", snapshot.getOffHeapBytes());
+        description.put("loadedAt", snapshot.getLoadedAt().toString());
+        description.put("loadMillis", snapshot.getLoadMillis());
+        return description;
+    }
+
+    private static Map<String, Object> result(Object value, long startNanos) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("queryMicros", (System.nanoTime() - startNanos) / 1_000);
+        result.put("result", value);
+        return result;
+    }
+
+    private static long fromMicros(LocalDateTime from) {
+        // NO_TIMESTAMP rows stay outside every range
+        return from != null ? ClinicActivitySnapshot.toMicros(from) : ClinicActivitySnapshot.NO_TIMESTAMP + 1;
+    }
+
+    private static long toMicros(LocalDateTime to) {
+        return to != null ? ClinicActivitySnapshot.toMicros(to) : Long.MAX_VALUE;
+    }
+}
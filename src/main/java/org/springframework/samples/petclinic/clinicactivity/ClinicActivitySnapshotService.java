@@ -0,0 +1,139 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link ClinicActivitySnapshot}, if one was loaded. A refresh builds a
+ * new snapshot next to the current one and swaps it in, so queries always see a complete
+ * snapshot; the old buffers are freed once no query uses them anymore.
+ * <p>
+ * On PostgreSQL the rows are streamed with a binary {@code COPY ... TO STDOUT} and decoded
+ * straight into the buffers; other databases use a streaming JDBC query.
+ */
+@Service
+public class ClinicActivitySnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicActivitySnapshotService.class);
+
+    private static final String COLUMNS = "activity_type, numeric_value, event_timestamp, status_flag";
+    private static final String COPY_SQL =
+        "COPY (SELECT " + COLUMNS + " FROM clinic_activity_logs) TO STDOUT (FORMAT binary)";
+    private static final int FETCH_SIZE = 10_000;
+    // PostgreSQL binary timestamps count microseconds from 2000-01-01T00:00
+    private static final long POSTGRES_EPOCH_MICROS = 946_684_800_000_000L;
+    private static final int COPY_SIGNATURE_LENGTH = 11;
+
+    private static final byte[][] TYPE_BYTES = ClinicActivityRowGenerator.ACTIVITY_TYPES.stream()
+        .map(type -> type.getBytes(StandardCharsets.UTF_8))
+        .toArray(byte[][]::new);
+
+    private final DataSource dataSource;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final ClinicActivitySchemaManager schemaManager;
+    private final AtomicReference<ClinicActivitySnapshot> snapshot = new AtomicReference<>();
+
+    @Autowired
+    public ClinicActivitySnapshotService(DataSource dataSource, ClinicActivitySchemaManager schemaManager) {
+        this.dataSource = dataSource;
+        this.schemaManager = schemaManager;
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * @return the current snapshot, or {@code null} if none was loaded yet
+     */
+    public ClinicActivitySnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Loads a new snapshot of the whole table and makes it the current one.
+     */
+    public synchronized ClinicActivitySnapshot refresh() {
+        long startTime = System.currentTimeMillis();
+        Integer expectedRows = streamingJdbcTemplate.queryForObject("SELECT COUNT(*) FROM clinic_activity_logs", Integer.class);
+        ClinicActivitySnapshot.Builder builder = new ClinicActivitySnapshot.Builder(expectedRows != null ? expectedRows : 0);
+        try {
+            if (schemaManager.isPostgres()) {
+                copyInto(builder);
+            } else {
+                queryInto(builder);
+            }
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Error loading clinic activity snapshot: " + e.getMessage(), e);
+        }
+        ClinicActivitySnapshot loaded = builder.build(System.currentTimeMillis() - startTime);
+        snapshot.set(loaded);
+        logger.info("Loaded clinic activity snapshot of {} rows ({} MB off-heap) in {} ms.",
+            loaded.getRows(), loaded.getOffHeapBytes() / (1024 * 1024), loaded.getLoadMillis());
+        return loaded;
+    }
+
+    private void copyInto(ClinicActivitySnapshot.Builder builder) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection();
+             DataInputStream in = new DataInputStream(new BufferedInputStream(
+                 new PGCopyInputStream(connection.unwrap(PGConnection.class), COPY_SQL), 1 << 16))) {
+            in.skipNBytes(COPY_SIGNATURE_LENGTH);
+            in.readInt(); // flags
+            in.skipNBytes(in.readInt()); // header extension
+            byte[] text = new byte[64];
+            short fields;
+            while ((fields = in.readShort()) != -1) {
+                if (fields != 4) {
+                    throw new IOException("Unexpected field count " + fields + " in COPY row.");
+                }
+                int length = in.readInt();
+                byte typeCode = ClinicActivitySnapshot.OTHER_TYPE;
+                if (length >= 0) {
+                    if (length > text.length) {
+                        text = new byte[length];
+                    }
+                    in.readFully(text, 0, length);
+                    typeCode = typeCode(text, length);
+                }
+                int numericValue = in.readInt() < 0 ? 0 : in.readInt();
+                long timestamp = in.readInt() < 0 ? ClinicActivitySnapshot.NO_TIMESTAMP : in.readLong() + POSTGRES_EPOCH_MICROS;
+                boolean statusFlag = in.readInt() >= 0 && in.readByte() != 0;
+                builder.add(typeCode, numericValue, timestamp, statusFlag);
+            }
+        }
+    }
+
+    // Matches the raw UTF-8 bytes so no String is created per row
+    private static byte typeCode(byte[] text, int length) {
+        for (int type = 0; type < TYPE_BYTES.length; type++) {
+            byte[] candidate = TYPE_BYTES[type];
+            if (candidate.length == length && Arrays.equals(candidate, 0, length, text, 0, length)) {
+                return (byte) type;
+            }
+        }
+        return ClinicActivitySnapshot.OTHER_TYPE;
+    }
+
+    private void queryInto(ClinicActivitySnapshot.Builder builder) {
+        streamingJdbcTemplate.query("SELECT " + COLUMNS + " FROM clinic_activity_logs", rs -> {
+            Timestamp timestamp = rs.getTimestamp(3);
+            builder.add(rs.getString(1), rs.getInt(2),
+                timestamp != null ? ClinicActivitySnapshot.toMicros(timestamp.toLocalDateTime()) : ClinicActivitySnapshot.NO_TIMESTAMP,
+                rs.getBoolean(4));
+        });
+    }
+}
@@ -0,0 +1,172 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A clinic activity logs population run submitted to {@link PopulationJobService}. The
+ * getters form the JSON view returned by the jobs API; progress figures are read live
+ * from the {@link PopulationProgress} of the run while it is in flight.
+ */
+public class PopulationJob {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final ClinicActivitySchemaMode schemaMode;
+    private final boolean reload;
+    private final int totalRows;
+    private final PopulationOptions options;
+    private final Instant submittedAt = Instant.now();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile PopulationProgress progress;
+    private volatile boolean cancelRequested;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile long finalRowsWritten;
+    private volatile long finalElapsedMillis;
+    private volatile String error;
+
+    /**
+     * @param schemaMode layout to recreate the table in before populating it, or
+     * {@code null} to append to the existing table
+     * @param reload whether to build the new table next to the live one and swap it in,
+     * instead of dropping the live table first
+     */
+    PopulationJob(ClinicActivitySchemaMode schemaMode, boolean reload, int totalRows, PopulationOptions options) {
+        this.schemaMode = schemaMode;
+        this.reload = reload;
+        this.totalRows = totalRows;
+        this.options = options;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isRecreateTable() {
+        return schemaMode != null;
+    }
+
+    public boolean isReload() {
+        return reload;
+    }
+
+    public ClinicActivitySchemaMode getSchemaMode() {
+        return schemaMode;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getTotalRows() {
+        return totalRows;
+    }
+
+    public int getParallelism() {
+        PopulationProgress current = progress;
+        return current != null ? current.getPartitionCount() : options.parallelism();
+    }
+
+    public ClinicActivityCopyFormat getFormat() {
+        return options.format();
+    }
+
+    public Long getSeed() {
+        return options.seed();
+    }
+
+    public long getRowsWritten() {
+        PopulationProgress current = progress;
+        return status.isFinished() || current == null ? finalRowsWritten : current.getRowsWritten();
+    }
+
+    public long getRowsPerSecond() {
+        long elapsedMillis = getElapsedMillis();
+        return elapsedMillis > 0 ? getRowsWritten() * 1000 / elapsedMillis : 0;
+    }
+
+    /**
+     * @return estimated seconds until the run completes, or {@code null} when the job is not
+     * running or no rows have been written yet
+     */
+    public Long getEtaSeconds() {
+        long rowsPerSecond = getRowsPerSecond();
+        if (status != Status.RUNNING || rowsPerSecond == 0) {
+            return null;
+        }
+        return Math.max(0, totalRows - getRowsWritten()) / rowsPerSecond;
+    }
+
+    public long getElapsedMillis() {
+        PopulationProgress current = progress;
+        return status.isFinished() || current == null ? finalElapsedMillis : current.getElapsedMillis();
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    PopulationOptions getOptions() {
+        return options;
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    /**
+     * Requests cancellation. A queued job never starts; a running one stops at the next
+     * row it writes and rolls back its uncommitted work.
+     */
+    void cancel() {
+        cancelRequested = true;
+        PopulationProgress current = progress;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    void markRunning() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void attachProgress(PopulationProgress progress) {
+        this.progress = progress;
+        if (cancelRequested) {
+            progress.cancel();
+        }
+    }
+
+    void markFinished(Status finalStatus, String error) {
+        PopulationProgress current = progress;
+        if (current != null) {
+            finalRowsWritten = current.getRowsWritten();
+            finalElapsedMillis = current.getElapsedMillis();
+        }
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = finalStatus;
+    }
+}
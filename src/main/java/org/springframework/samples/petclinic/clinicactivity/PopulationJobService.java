@@ -0,0 +1,201 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs clinic activity logs population as background jobs. Jobs execute on a small bounded
+ * executor, so concurrent seed requests queue up (or are rejected) instead of each opening
+ * its own set of COPY connections and exhausting the connection pool.
+ */
+@Service
+public class PopulationJobService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PopulationJobService.class);
+    static final int MAX_RETAINED_JOBS = 50;
+
+    private final ClinicActivityDataService dataService;
+    private final ClinicActivitySchemaManager schemaManager;
+    private final ClinicActivityRollupService rollupService;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, PopulationJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PopulationJobService(ClinicActivityDataService dataService,
+                                ClinicActivitySchemaManager schemaManager,
+                                ClinicActivityRollupService rollupService,
+                                @Value("${clinic-activity.jobs.max-concurrent:1}") int maxConcurrentJobs,
+                                @Value("${clinic-activity.jobs.queue-capacity:2}") int queueCapacity) {
+        this.dataService = dataService;
+        this.schemaManager = schemaManager;
+        this.rollupService = rollupService;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "ClinicActivityJob-" + threadCounter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Queues a population run.
+     * @param schemaMode layout to drop and recreate the table in before populating it, or
+     * {@code null} to append to the existing table
+     * @param reload with a schema mode, whether to load into an UNLOGGED staging table and swap
+     * it in once it is indexed, so the live table stays readable meanwhile; rows written to the
+     * live table during the reload are lost. Falls back to recreating the table when
+     * {@link ClinicActivitySchemaManager#supportsStagingReload} is false.
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public PopulationJob submit(ClinicActivitySchemaMode schemaMode, boolean reload, int totalRows, PopulationOptions options) {
+        PopulationJob job = new PopulationJob(schemaMode, reload, totalRows, options);
+        evictFinishedJobs();
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        logger.info("Queued clinic activity population job {} for {} entries (recreate table: {}, reload: {}).",
+            job.getId(), totalRows, schemaMode != null ? schemaMode : "no", reload);
+        return job;
+    }
+
+    public PopulationJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    public List<PopulationJob> getJobs() {
+        List<PopulationJob> result = new ArrayList<>(jobs.values());
+        result.sort((a, b) -> b.getSubmittedAt().compareTo(a.getSubmittedAt()));
+        return result;
+    }
+
+    /**
+     * @return the job, or {@code null} if no job with this id is known
+     */
+    public PopulationJob cancel(String id) {
+        PopulationJob job = jobs.get(id);
+        if (job != null && !job.getStatus().isFinished()) {
+            logger.info("Cancelling clinic activity population job {}.", id);
+            job.cancel();
+        }
+        return job;
+    }
+
+    @Override
+    public void destroy() {
+        jobs.values().forEach(PopulationJob::cancel);
+        executor.shutdownNow();
+    }
+
+    private void run(PopulationJob job) {
+        if (job.isCancelRequested()) {
+            job.markFinished(PopulationJob.Status.CANCELLED, null);
+            return;
+        }
+        job.markRunning();
+        try {
+            ClinicActivitySchemaMode schemaMode = job.getSchemaMode();
+            if (schemaMode != null && job.isReload() && schemaManager.supportsStagingReload(schemaMode)) {
+                reload(job, schemaMode);
+            } else {
+                if (job.isReload()) {
+                    logger.info("Staging reload is not supported for {} mode on this database, recreating the table instead.", schemaMode);
+                }
+                if (schemaMode != null) {
+                    schemaManager.recreateTable(schemaMode);
+                }
+                dataService.populateData(job.getTotalRows(), job.getOptions(), job::attachProgress);
+                if (schemaMode != null && schemaMode.hasIndexes()) {
+                    schemaManager.createIndexes();
+                }
+            }
+            job.markFinished(PopulationJob.Status.SUCCEEDED, null);
+            logger.info("Clinic activity population job {} finished: {} rows in {} ms.",
+                job.getId(), job.getRowsWritten(), job.getElapsedMillis());
+        } catch (Exception e) {
+            if (job.isCancelRequested() && hasCause(e, CancellationException.class)) {
+                job.markFinished(PopulationJob.Status.CANCELLED, null);
+                logger.info("Clinic activity population job {} cancelled after {} rows.", job.getId(), job.getRowsWritten());
+            } else {
+                job.markFinished(PopulationJob.Status.FAILED, e.getMessage());
+                logger.error("Clinic activity population job {} failed", job.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Loads and indexes the staging table while the live table keeps serving reads, then
+     * swaps it in; the staging table is dropped again if anything fails before the swap.
+     */
+    private void reload(PopulationJob job, ClinicActivitySchemaMode schemaMode) {
+        schemaManager.createStagingTable(schemaMode);
+        try {
+            dataService.populateData(ClinicActivitySchemaManager.STAGING_TABLE, job.getTotalRows(), job.getOptions(), job::attachProgress);
+            if (schemaMode.hasIndexes()) {
+                schemaManager.createStagingIndexes();
+            }
+            schemaManager.swapInStaging();
+        } catch (RuntimeException e) {
+            try {
+                schemaManager.dropStagingTable();
+            } catch (RuntimeException dropFailure) {
+                e.addSuppressed(dropFailure);
+            }
+            throw e;
+        }
+        if (rollupService.isEnabled()) {
+            try {
+                rollupService.refresh();
+            } catch (RuntimeException e) {
+                logger.warn("Rolling up the reloaded clinic activity logs failed", e);
+            }
+        }
+    }
+
+    private void evictFinishedJobs() {
+        int excess = jobs.size() - MAX_RETAINED_JOBS + 1;
+        if (excess <= 0) {
+            return;
+        }
+        List<PopulationJob> finished = new ArrayList<>();
+        for (PopulationJob job : jobs.values()) {
+            if (job.getStatus().isFinished()) {
+                finished.add(job);
+            }
+        }
+        finished.sort((a, b) -> a.getSubmittedAt().compareTo(b.getSubmittedAt()));
+        Iterator<PopulationJob> oldest = finished.iterator();
+        while (excess-- > 0 && oldest.hasNext()) {
+            jobs.remove(oldest.next().getId());
+        }
+    }
+
+    private static boolean hasCause(Throwable throwable, Class<? extends Throwable> type) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,69 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures peak heap usage and allocated bytes of a population run so the figures can be
+ * reported in the final population log line. Allocation is counted per thread via the
+ * HotSpot {@code com.sun.management.ThreadMXBean}; each worker records its own share.
+ */
+class PopulationMemoryProbe {
+
+    private static final long MB = 1024 * 1024;
+
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    private PopulationMemoryProbe() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    static PopulationMemoryProbe start() {
+        return new PopulationMemoryProbe();
+    }
+
+    /**
+     * @return bytes allocated so far by the calling thread, or 0 if the JVM cannot tell
+     */
+    static long currentThreadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean hotspotThreads
+                && hotspotThreads.isThreadAllocatedMemoryEnabled()) {
+            return hotspotThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    void recordAllocatedBytes(long bytes) {
+        allocatedBytes.addAndGet(bytes);
+    }
+
+    long getAllocatedMegabytes() {
+        return allocatedBytes.get() / MB;
+    }
+
+    long getAllocationRateMegabytesPerSecond(long elapsedMillis) {
+        return elapsedMillis > 0 ? allocatedBytes.get() * 1000 / elapsedMillis / MB : 0;
+    }
+
+    /**
+     * Sum of the per-pool heap peaks since this probe started (an upper bound of the real
+     * peak, as pools do not necessarily peak at the same time).
+     */
+    long getPeakHeapMegabytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid() && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak / MB;
+    }
+}
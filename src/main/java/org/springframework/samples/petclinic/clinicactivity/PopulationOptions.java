@@ -0,0 +1,12 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+/**
+ * Tuning knobs of a clinic activity logs population run.
+ *
+ * @param parallelism number of partitions written concurrently, by COPY on PostgreSQL and by
+ *                    multi-row inserts elsewhere
+ * @param format COPY wire format (PostgreSQL only)
+ * @param seed seed of the synthetic row generator, or {@code null} for a random seed
+ */
+public record PopulationOptions(int parallelism, ClinicActivityCopyFormat format, Long seed) {
+}
@@ -0,0 +1,89 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks how many clinic activity log rows have been written by each partition of a
+ * population run. Partitions are written concurrently, so all counters are atomic.
+ * Writers poll {@link #isCancelled()} so a run can be stopped from another thread.
+ */
+public class PopulationProgress {
+
+    private final int totalRows;
+    private final int[] partitionRows;
+    private final AtomicLongArray partitionWritten;
+    private final long startNanos = System.nanoTime();
+    private volatile boolean cancelled;
+
+    public PopulationProgress(int totalRows, int partitions) {
+        this.totalRows = totalRows;
+        this.partitionRows = new int[partitions];
+        this.partitionWritten = new AtomicLongArray(partitions);
+        int base = totalRows / partitions;
+        int remainder = totalRows % partitions;
+        for (int p = 0; p < partitions; p++) {
+            partitionRows[p] = base + (p < remainder ? 1 : 0);
+        }
+    }
+
+    public int getTotalRows() {
+        return totalRows;
+    }
+
+    public int getPartitionCount() {
+        return partitionRows.length;
+    }
+
+    public int getPartitionRows(int partition) {
+        return partitionRows[partition];
+    }
+
+    public long getRowsWritten(int partition) {
+        return partitionWritten.get(partition);
+    }
+
+    public long getRowsWritten() {
+        long written = 0;
+        for (int p = 0; p < partitionRows.length; p++) {
+            written += partitionWritten.get(p);
+        }
+        return written;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    void record(int partition, long rows) {
+        partitionWritten.addAndGet(partition, rows);
+    }
+
+    void checkNotCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Clinic activity logs population was cancelled");
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getRowsWritten()).append(" / ").append(totalRows).append(" rows [");
+        for (int p = 0; p < partitionRows.length; p++) {
+            if (p > 0) {
+                sb.append(", ");
+            }
+            sb.append('p').append(p).append('=').append(partitionWritten.get(p)).append('/').append(partitionRows[p]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,213 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.samples.petclinic.system.ReadReplica;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop database load generator: queries of a weighted mix are issued at a fixed target
+ * rate for a fixed duration, independent of how fast earlier queries complete, with at most
+ * {@code maxInFlight} running at once. One run at a time; it runs in the background and is
+ * observed through {@link #getCurrentRun()}.
+ * <p>
+ * Workers are pooled platform threads, as this project targets Java 17; the in-flight limit
+ * bounds their number.
+ */
+@Service
+public class WorkloadEngine implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadEngine.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ClinicActivitySchemaManager schemaManager;
+    private final ExecutorService dispatcher;
+    private final ExecutorService workers;
+    private volatile WorkloadRun currentRun;
+
+    @Autowired
+    public WorkloadEngine(DataSource dataSource, PlatformTransactionManager transactionManager,
+                          ClinicActivitySchemaManager schemaManager,
+                          @Value("${clinic-activity.workload.query-timeout:60}") int queryTimeoutSeconds) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setQueryTimeout(queryTimeoutSeconds);
+        // every query of the mix is a read, so runs go to the read replica when there is one
+        this.transactionTemplate = ReadReplica.transactionTemplate(transactionManager);
+        this.schemaManager = schemaManager;
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "WorkloadDispatcher"));
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = Executors.newCachedThreadPool(
+            runnable -> daemon(runnable, "WorkloadWorker-" + threadCounter.getAndIncrement()));
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * @throws IllegalStateException if a run is still in progress
+     */
+    public synchronized WorkloadRun start(WorkloadSpec spec) {
+        if (currentRun != null && !currentRun.isFinished()) {
+            throw new IllegalStateException("Workload " + currentRun.getId() + " is still running.");
+        }
+        String databaseProductName = schemaManager.getDatabaseProductName();
+        WorkloadRun run = new WorkloadRun(spec);
+        currentRun = run;
+        dispatcher.execute(() -> dispatch(run, databaseProductName));
+        logger.info("Started workload {} at {} QPS for {} with mix {}.", run.getId(), spec.targetQps(), spec.duration(), spec.mix());
+        return run;
+    }
+
+    /**
+     * @return the running or last finished run, {@code null} if there was none
+     */
+    public WorkloadRun getCurrentRun() {
+        return currentRun;
+    }
+
+    /**
+     * Stops issuing queries; queries already running complete.
+     * @return the run that is stopping, {@code null} if none is running
+     */
+    public WorkloadRun stop() {
+        WorkloadRun run = currentRun;
+        if (run == null || run.isFinished()) {
+            return null;
+        }
+        run.requestStop();
+        return run;
+    }
+
+    @Override
+    public void destroy() {
+        WorkloadRun run = currentRun;
+        if (run != null) {
+            run.requestStop();
+        }
+        dispatcher.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void dispatch(WorkloadRun run, String databaseProductName) {
+        WorkloadSpec spec = run.getSpec();
+        boolean mysql = "MySQL".equalsIgnoreCase(databaseProductName) || "MariaDB".equalsIgnoreCase(databaseProductName);
+        boolean postgres = "PostgreSQL".equalsIgnoreCase(databaseProductName);
+        WeightedMix mix = new WeightedMix(spec.mix());
+        long intervalNanos = Math.max(1, (long) (1_000_000_000L / spec.targetQps()));
+        long start = System.nanoTime();
+        long end = start + spec.duration().toNanos();
+        try {
+            for (long arrival = 0; !run.isStopRequested(); arrival++) {
+                long intended = start + arrival * intervalNanos;
+                if (intended - end >= 0) {
+                    break;
+                }
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0 && !run.isStopRequested()) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    run.requestStop();
+                    break;
+                }
+                if (run.isStopRequested()) {
+                    // stopped while waiting for the arrival time
+                    break;
+                }
+                run.recordScheduled();
+                if (!run.tryAcquire()) {
+                    run.recordDropped();
+                    continue;
+                }
+                WorkloadQuery query = mix.pick(ThreadLocalRandom.current().nextLong(mix.totalWeight()));
+                workers.execute(() -> execute(run, query, intended, mysql, postgres));
+            }
+            while (run.getInFlight() > 0) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            run.finish(run.isStopRequested() ? WorkloadRun.Status.STOPPED : WorkloadRun.Status.SUCCEEDED, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.finish(WorkloadRun.Status.STOPPED, null);
+        } catch (RuntimeException e) {
+            logger.error("Error dispatching workload {}", run.getId(), e);
+            run.finish(WorkloadRun.Status.FAILED, e.getMessage());
+        }
+        logger.info("Workload {} {}: {} completed, {} dropped, {} errors, {} QPS achieved.", run.getId(), run.getStatus(),
+            run.getCompleted(), run.getDropped(), run.getErrors(), String.format("%.1f", run.getAchievedQps()));
+    }
+
+    /**
+     * Picks queries in proportion to their weight, by the running totals of the weights.
+     */
+    static final class WeightedMix {
+
+        private final WorkloadQuery[] queries;
+        private final long[] cumulativeWeights;
+
+        WeightedMix(Map<WorkloadQuery, Integer> mix) {
+            queries = mix.keySet().toArray(new WorkloadQuery[0]);
+            cumulativeWeights = new long[queries.length];
+            long total = 0;
+            for (int i = 0; i < queries.length; i++) {
+                total += mix.get(queries[i]);
+                cumulativeWeights[i] = total;
+            }
+        }
+
+        long totalWeight() {
+            return cumulativeWeights[cumulativeWeights.length - 1];
+        }
+
+        /**
+         * @param ticket between 0 (inclusive) and {@link #totalWeight()} (exclusive)
+         */
+        WorkloadQuery pick(long ticket) {
+            for (int i = 0; i < queries.length - 1; i++) {
+                if (ticket < cumulativeWeights[i]) {
+                    return queries[i];
+                }
+            }
+            return queries[queries.length - 1];
+        }
+    }
+
+    private void execute(WorkloadRun run, WorkloadQuery query, long intendedNanos, boolean mysql, boolean postgres) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (postgres && run.getSpec().workMem() != null) {
+                    // transaction-local, unlike SET, so it does not stick to the pooled connection
+                    jdbcTemplate.queryForObject("SELECT set_config('work_mem', ?, true)", String.class, run.getSpec().workMem());
+                }
+                jdbcTemplate.query(query.sql(mysql), (RowCallbackHandler) rs -> {
+                }, query.parameters(run.getSpec().limit()));
+            });
+            run.recordLatency(query, (System.nanoTime() - intendedNanos) / 1_000);
+        } catch (RuntimeException e) {
+            logger.debug("Workload query {} failed", query, e);
+            run.recordError(e);
+        } finally {
+            run.release();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Queries a {@link WorkloadEngine} run can mix, each with randomized parameters matching the
+ * data written by {@link ClinicActivityRowGenerator}. {@code {random}} in the SQL is replaced
+ * with the random function of the database.
+ */
+public enum WorkloadQuery {
+
+    /** Equality lookup on numeric_value, about 60 rows per million. */
+    POINT("SELECT id, activity_type, numeric_value, event_timestamp, status_flag " +
+          "FROM clinic_activity_logs WHERE numeric_value = ?") {
+        @Override
+        Object[] parameters(int limit) {
+            return new Object[]{ThreadLocalRandom.current().nextInt(1, 100_000)};
+        }
+    },
+
+    /** Count over a one day window of event_timestamp. */
+    RANGE("SELECT COUNT(*) FROM clinic_activity_logs WHERE event_timestamp >= ? AND event_timestamp < ?") {
+        @Override
+        Object[] parameters(int limit) {
+            LocalDateTime start = LocalDateTime.now().minusDays(ThreadLocalRandom.current().nextInt(1, 5 * 365));
+            return new Object[]{Timestamp.valueOf(start), Timestamp.valueOf(start.plusDays(1))};
+        }
+    },
+
+    /** Per type aggregate over half of the table. */
+    AGGREGATE("SELECT activity_type, COUNT(*), AVG(numeric_value) FROM clinic_activity_logs " +
+              "WHERE status_flag = ? GROUP BY activity_type") {
+        @Override
+        Object[] parameters(int limit) {
+            return new Object[]{ThreadLocalRandom.current().nextBoolean()};
+        }
+    },
+
+    /** Random sample of {@code limit} rows with payload: a full scan plus a large sort. */
+    SAMPLE("SELECT id, activity_type, numeric_value, event_timestamp, payload FROM clinic_activity_logs " +
+           "WHERE LENGTH(payload) > 100 ORDER BY {random} LIMIT ?") {
+        @Override
+        Object[] parameters(int limit) {
+            return new Object[]{limit};
+        }
+    };
+
+    private final String sql;
+
+    WorkloadQuery(String sql) {
+        this.sql = sql;
+    }
+
+    String sql(boolean mysql) {
+        return sql.replace("{random}", mysql ? "RAND()" : "RANDOM()");
+    }
+
+    abstract Object[] parameters(int limit);
+
+    public static WorkloadQuery fromParameter(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported query '" + value + "', expected point, range, aggregate or sample.", e);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One run of {@link WorkloadEngine}; the getters form the JSON view of the status endpoint
+ * and are live while the run is in progress.
+ * <p>
+ * Latencies are measured from the time a query was scheduled to arrive, not from when a
+ * worker picked it up, so queueing behind slow queries shows in the percentiles instead of
+ * silently lowering the request rate.
+ */
+public class WorkloadRun {
+
+    public enum Status {
+        RUNNING, SUCCEEDED, STOPPED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final WorkloadSpec spec;
+    private final Instant startedAt = Instant.now();
+    private final Map<WorkloadQuery, LatencyHistogram> latencies = new EnumMap<>(WorkloadQuery.class);
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile boolean stopRequested;
+    private volatile Instant finishedAt;
+    private volatile String lastError;
+
+    WorkloadRun(WorkloadSpec spec) {
+        this.spec = spec;
+        spec.mix().keySet().forEach(query -> latencies.put(query, new LatencyHistogram()));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public WorkloadSpec getSpec() {
+        return spec;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getScheduled() {
+        return scheduled.get();
+    }
+
+    public long getCompleted() {
+        return latencies.values().stream().mapToLong(LatencyHistogram::getCount).sum();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getAchievedQps() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long millis = Math.max(1, Duration.between(startedAt, end).toMillis());
+        return getCompleted() * 1000.0 / millis;
+    }
+
+    public Map<String, Map<String, Object>> getLatencies() {
+        Map<String, Map<String, Object>> summaries = new LinkedHashMap<>();
+        latencies.forEach((query, histogram) -> summaries.put(query.name().toLowerCase(Locale.ROOT), histogram.summary()));
+        return summaries;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    void requestStop() {
+        stopRequested = true;
+    }
+
+    void recordScheduled() {
+        scheduled.incrementAndGet();
+    }
+
+    void recordDropped() {
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * @return whether another query may start, i.e. fewer than maxInFlight are running
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= spec.maxInFlight()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    void recordLatency(WorkloadQuery query, long micros) {
+        latencies.get(query).record(micros);
+    }
+
+    void recordError(Exception e) {
+        errors.incrementAndGet();
+        lastError = e.getMessage();
+    }
+
+    void finish(Status finalStatus, String error) {
+        if (error != null) {
+            lastError = error;
+        }
+        finishedAt = Instant.now();
+        status = finalStatus;
+    }
+
+    boolean isFinished() {
+        return status != Status.RUNNING;
+    }
+}
@@ -0,0 +1,81 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * What a {@link WorkloadEngine} run does.
+ *
+ * @param targetQps arrival rate of queries, kept regardless of how fast they complete; at
+ * most {@value #MAX_QPS}
+ * @param duration how long queries are issued
+ * @param maxInFlight queries running at once; arrivals beyond that are dropped and counted
+ * @param mix relative weight of each query
+ * @param limit row limit of {@link WorkloadQuery#SAMPLE}, at most {@value #MAX_LIMIT}
+ * @param workMem PostgreSQL work_mem set for each query's transaction, or {@code null}
+ */
+public record WorkloadSpec(double targetQps, Duration duration, int maxInFlight, Map<WorkloadQuery, Integer> mix,
+                           int limit, String workMem) {
+
+    static final int MAX_WEIGHT = 1_000_000;
+
+    // the same caps for every endpoint that starts a run, so none of them can hammer the database
+    static final double MAX_QPS = 1000;
+
+    static final int MAX_LIMIT = 1_000_000;
+
+    private static final Pattern WORK_MEM = Pattern.compile("\\d{1,7}(kB|MB|GB)");
+
+    public WorkloadSpec {
+        if (!(targetQps > 0 && targetQps <= MAX_QPS)) {
+            throw new IllegalArgumentException("Target QPS must be above 0 and at most " + (int) MAX_QPS + ".");
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive.");
+        }
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in-flight queries must be a positive integer.");
+        }
+        if (mix.isEmpty() || mix.values().stream().anyMatch(weight -> weight <= 0 || weight > MAX_WEIGHT)) {
+            throw new IllegalArgumentException("The query mix needs at least one query, all weights between 1 and " + MAX_WEIGHT + ".");
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT + ".");
+        }
+        if (workMem != null && !WORK_MEM.matcher(workMem).matches()) {
+            throw new IllegalArgumentException("Unsupported work_mem '" + workMem + "', expected e.g. 64MB.");
+        }
+        mix = Collections.unmodifiableMap(new EnumMap<>(mix));
+    }
+
+    /**
+     * Parses a mix like {@code point:5,range:3,sample:1}; a query without weight counts once.
+     * @throws IllegalArgumentException for unknown queries and weights that are not numbers
+     * between 1 and {@value #MAX_WEIGHT}, also after adding up repeated queries
+     */
+    public static Map<WorkloadQuery, Integer> parseMix(String value) {
+        Map<WorkloadQuery, Integer> mix = new EnumMap<>(WorkloadQuery.class);
+        for (String entry : value.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split(":", 2);
+            int weight;
+            try {
+                weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid weight in query mix entry '" + entry.trim() + "'.", e);
+            }
+            WorkloadQuery query = WorkloadQuery.fromParameter(parts[0]);
+            if (weight <= 0 || weight > MAX_WEIGHT - mix.getOrDefault(query, 0)) {
+                throw new IllegalArgumentException("Weight of '" + parts[0].trim() + "' in the query mix must be between 1 and "
+                    + MAX_WEIGHT + ".");
+            }
+            mix.merge(query, weight, Integer::sum);
+        }
+        return mix;
+    }
+}
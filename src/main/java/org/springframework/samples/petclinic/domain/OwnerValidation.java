@@ -1,12 +1,33 @@
 package org.springframework.samples.petclinic.domain;
 
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.stereotype.Component;
 
-public class OwnerValidation {
+@Component
+public class OwnerValidation implements DisposableBean {
+
+	private static final long STEP_TIMEOUT_MILLIS = 1000;
+
+	private static final int TOKEN_ATTEMPTS = 3;
 
 	private int counter = 0;
 
@@ -20,12 +41,38 @@ public class OwnerValidation {
 
 	private TwoFactorAuthenticationService twoFASvc;
 
-	public OwnerValidation(Tracer otelTracer) {
-		this.pwdUtils = new PasswordUtils();
-		this.roleSvc = new RoleService();
+	/** Runs the steps of {@link #ValidateUserAccessAsync} in the caller's trace context. */
+	private ExecutorService validationExecutor;
+
+	@Autowired
+	public OwnerValidation(OpenTelemetry openTelemetry,
+			@Value("${petclinic.owner-validation.threads:16}") int threads,
+			@Value("${petclinic.owner-validation.queue-size:256}") int queueSize) {
+		this(openTelemetry.getTracer("OwnerValidation"), new UserValidationService(), new PasswordUtils(),
+				new RoleService(), new TwoFactorAuthenticationService(), newValidationExecutor(threads, queueSize));
+	}
+
+	OwnerValidation(Tracer otelTracer, UserValidationService usrValSvc, PasswordUtils pwdUtils, RoleService roleSvc,
+			TwoFactorAuthenticationService twoFASvc, ExecutorService validationExecutor) {
 		this.otelTracer = otelTracer;
-		this.usrValSvc = new UserValidationService();
-		this.twoFASvc = new TwoFactorAuthenticationService();
+		this.usrValSvc = usrValSvc;
+		this.pwdUtils = pwdUtils;
+		this.roleSvc = roleSvc;
+		this.twoFASvc = twoFASvc;
+		this.validationExecutor = validationExecutor;
+	}
+
+	private static ExecutorService newValidationExecutor(int threads, int queueSize) {
+		AtomicInteger threadCounter = new AtomicInteger();
+		// bounded; once the queue is full further steps are rejected and fail
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 60,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+					Thread thread = new Thread(runnable, "OwnerValidation-" + threadCounter.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return Context.taskWrapping(executor);
 	}
 
 	@WithSpan
@@ -39,39 +86,74 @@ public class OwnerValidation {
 	// business logic
 	public boolean ValidateUserAccess(String usr, String pswd, String sysCode) {
 
-		boolean vldUsr = usrValSvc.vldtUsr(usr);
-		if (!vldUsr) {
-			return false;
-		}
+		return ValidateUserAccessAsync(usr, pswd, sysCode).join();
+	}
 
-		boolean vldPswd = pwdUtils.vldtPswd(usr, pswd);
-		if (!vldPswd) {
-			return false;
+	/**
+	 * Runs the user, password, role and two-factor checks in parallel, the token check
+	 * after the two-factor initialization. Completes with {@code false} as soon as one
+	 * step fails, throws, runs longer than {@value #STEP_TIMEOUT_MILLIS} ms or is
+	 * rejected by the saturated executor, without waiting for the others; never completes
+	 * exceptionally. Time a step spends queued for a thread does not count against its
+	 * timeout.
+	 */
+	public CompletableFuture<Boolean> ValidateUserAccessAsync(String usr, String pswd, String sysCode) {
+
+		List<CompletableFuture<Boolean>> steps = List.of(step(() -> usrValSvc.vldtUsr(usr)),
+				step(() -> pwdUtils.vldtPswd(usr, pswd)), step(() -> roleSvc.vldtUsrRole(usr, sysCode)),
+				step(() -> twoFASvc.init2FA(usr)).thenCompose(
+						is2FASuccess -> is2FASuccess ? step(() -> vldtToken(usr)) : CompletableFuture.completedFuture(false)));
+
+		CompletableFuture<Boolean> result = new CompletableFuture<>();
+		AtomicInteger remaining = new AtomicInteger(steps.size());
+		for (CompletableFuture<Boolean> step : steps) {
+			step.whenComplete((valid, failure) -> {
+				if (failure != null || !Boolean.TRUE.equals(valid)) {
+					result.complete(false);
+				}
+				else if (remaining.decrementAndGet() == 0) {
+					result.complete(true);
+				}
+			});
 		}
+		// steps already running finish in the background, nobody waits for them
+		result.whenComplete((valid, failure) -> steps.forEach(step -> step.cancel(false)));
+		return result;
+	}
 
-		boolean vldUsrRole = roleSvc.vldtUsrRole(usr, sysCode);
-		if (!vldUsrRole) {
-			return false;
+	private CompletableFuture<Boolean> step(Supplier<Boolean> check) {
+		CompletableFuture<Boolean> step = new CompletableFuture<>();
+		try {
+			this.validationExecutor.execute(() -> {
+				if (step.isDone()) {
+					// cancelled while queued, the result is already decided
+					return;
+				}
+				step.orTimeout(STEP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				try {
+					step.complete(check.get());
+				}
+				catch (Throwable e) {
+					step.completeExceptionally(e);
+				}
+			});
 		}
-
-		boolean is2FASuccess = twoFASvc.init2FA(usr);
-		if (!is2FASuccess) {
-			return false;
+		catch (RejectedExecutionException e) {
+			// running it on the calling thread instead would not be bound by the timeout
+			return CompletableFuture.completedFuture(false);
 		}
+		return step;
+	}
 
+	private boolean vldtToken(String usr) {
 		boolean is2FATokenValid = false;
 		int retry = 0;
-		while (retry < 3 && !is2FATokenValid) {
+		while (retry < TOKEN_ATTEMPTS && !is2FATokenValid) {
 			String token = twoFASvc.getTokenInput();
 			is2FATokenValid = twoFASvc.vldtToken(usr, token);
 			retry++;
 		}
-
-		if (!is2FATokenValid) {
-			return false;
-		}
-
-		return true;
+		return is2FATokenValid;
 	}
 
 	@WithSpan
@@ -130,4 +212,9 @@ public class OwnerValidation {
 //		}
 	}
 
+	@Override
+	public void destroy() {
+		this.validationExecutor.shutdownNow();
+	}
+
 }
@@ -18,6 +18,7 @@ package org.springframework.samples.petclinic.owner;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.samples.petclinic.model.Person;
 import org.springframework.util.Assert;
@@ -25,8 +26,10 @@ import org.springframework.util.Assert;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OrderBy;
 import jakarta.persistence.Table;
@@ -44,8 +47,17 @@ import jakarta.validation.constraints.NotBlank;
  */
 @Entity
 @Table(name = "owners")
+@NamedEntityGraph(name = Owner.PETS_GRAPH, attributeNodes = @NamedAttributeNode(value = "pets", subgraph = "pet"),
+		subgraphs = @NamedSubgraph(name = "pet", attributeNodes = @NamedAttributeNode("type")))
 public class Owner extends Person {
 
+	/**
+	 * Entity graph loading the owner with its pets and their types in one query. Visits
+	 * are left to batch fetching: joining them as well would repeat every pet once per
+	 * visit in the pets list.
+	 */
+	public static final String PETS_GRAPH = "Owner.pets";
+
 	@Column(name = "address")
 	@NotBlank
 	private String address;
@@ -59,9 +71,11 @@ public class Owner extends Person {
 	@Digits(fraction = 0, integer = 10)
 	private String telephone;
 
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	// lazy, and loaded for up to 20 owners of a list page at once
+	@OneToMany(cascade = CascadeType.ALL)
 	@JoinColumn(name = "owner_id")
 	@OrderBy("name")
+	@BatchSize(size = 20)
 	private List<Pet> pets = new ArrayList<>();
 
 	public String getAddress() {
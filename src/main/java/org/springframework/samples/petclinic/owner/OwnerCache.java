@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.SerializationUtils;
+
+/**
+ * Read-through cache of owner aggregates (owner, pets, pet types and visits) in front of
+ * {@link OwnerRepository#findDetailsById}. Size and TTL bounds are configured on the
+ * {@value #CACHE_NAME} cache in {@code CacheConfiguration}.
+ * <p>
+ * Entities are mutable, so the cache keeps a detached copy of every aggregate and hands
+ * out a fresh copy on each lookup; changes only reach the cache by saving them through
+ * {@link #save(Owner)}, which evicts the owner. Without a cache manager, or without the
+ * {@value #CACHE_NAME} cache, every lookup loads the owner.
+ * <p>
+ * Misses are loaded in a read-write transaction, so they read from the primary database
+ * even when read-only transactions go to a replica: the page shown right after a save
+ * would otherwise cache a lagging copy of the owner for the whole TTL.
+ */
+@Component
+public class OwnerCache {
+
+	public static final String CACHE_NAME = "owners";
+
+	private final OwnerRepository owners;
+
+	private final TransactionTemplate primaryTransaction;
+
+	private final Cache cache;
+
+	@Autowired
+	public OwnerCache(OwnerRepository owners, PlatformTransactionManager transactionManager,
+			ObjectProvider<CacheManager> cacheManager) {
+		this(owners, transactionManager,
+				cacheManager.stream().map(cm -> cm.getCache(CACHE_NAME)).filter(c -> c != null).findFirst().orElse(null));
+	}
+
+	OwnerCache(OwnerRepository owners, PlatformTransactionManager transactionManager, Cache cache) {
+		this.owners = owners;
+		this.primaryTransaction = new TransactionTemplate(transactionManager);
+		this.cache = cache;
+	}
+
+	/**
+	 * @return a copy of the owner aggregate that the caller may modify, {@code null} if
+	 * there is no owner with this id
+	 */
+	public Owner findById(int ownerId) {
+		Owner cached = findCachedById(ownerId);
+		if (cached != null) {
+			return cached;
+		}
+		Owner owner = this.primaryTransaction.execute(status -> load(ownerId));
+		if (owner == null) {
+			// unknown ids are not cached, the owner may be created later
+			return null;
+		}
+		Owner copy = SerializationUtils.clone(owner);
+		if (this.cache != null) {
+			this.cache.put(ownerId, SerializationUtils.clone(copy));
+		}
+		return copy;
+	}
+
+	/**
+	 * @return a copy of the cached owner aggregate, {@code null} if it is not cached
+	 */
+	public Owner findCachedById(int ownerId) {
+		Owner cached = this.cache != null ? this.cache.get(ownerId, Owner.class) : null;
+		return cached != null ? SerializationUtils.clone(cached) : null;
+	}
+
+	/**
+	 * Loads the owner row only, with {@link OwnerRepository#findOwnerById}, for pages that
+	 * do not show the pets; the owner is not cached.
+	 * @return the owner, {@code null} if there is no owner with this id
+	 */
+	public Owner findOwnerById(int ownerId) {
+		return this.primaryTransaction.execute(status -> this.owners.findOwnerById(ownerId));
+	}
+
+	/**
+	 * Saves the owner with {@link OwnerRepository#save} and evicts it from the cache.
+	 */
+	public void save(Owner owner) {
+		this.owners.save(owner);
+		evict(owner.getId());
+	}
+
+	/**
+	 * Evicts the owner now and, when called inside a transaction, once more after it
+	 * completes so a copy read before the commit is not kept.
+	 */
+	public void evict(Integer ownerId) {
+		if (this.cache == null || ownerId == null) {
+			return;
+		}
+		this.cache.evict(ownerId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					cache.evict(ownerId);
+				}
+			});
+		}
+	}
+
+	private Owner load(int ownerId) {
+		Owner owner = this.owners.findDetailsById(ownerId);
+		if (owner != null) {
+			// the copy is detached, so everything it exposes has to be loaded now
+			owner.getPets().forEach(pet -> pet.getVisits().size());
+		}
+		return owner;
+	}
+
+}
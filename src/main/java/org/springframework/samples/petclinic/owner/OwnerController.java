@@ -15,7 +15,7 @@
  */
 package org.springframework.samples.petclinic.owner;
 
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -27,10 +27,13 @@ import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.domain.OwnerValidation;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -52,30 +55,37 @@ class OwnerController implements InitializingBean {
 
 	private static final String VIEWS_OWNER_CREATE_OR_UPDATE_FORM = "owners/createOrUpdateOwnerForm";
 
-	private OwnerValidation validator;
+	private static final int MAX_SUGGESTIONS = 10;
+
+	private final OwnerValidation validator;
 
 	@Autowired
 	private OpenTelemetry openTelemetry;
 
 	private Tracer otelTracer;
-	@Autowired
-	private OwnerRepository ownerRepository;
 
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		this.otelTracer = openTelemetry.getTracer("OwnerController");
-
-		validator = new OwnerValidation(this.otelTracer);
 	}
 
 	private final OwnerRepository owners;
-	private final JdbcTemplate jdbcTemplate;
-
-	public OwnerController(OwnerRepository clinicService, JdbcTemplate jdbcTemplate
-
-	) {
+	private final OwnerLoader ownerLoader;
+	private final OwnerPetLookupService petLookup;
+	private final OwnerLastNameIndex lastNameIndex;
+	private final OwnerCounts ownerCounts;
+	private final OwnerPaging paging;
+
+	public OwnerController(OwnerRepository clinicService, OwnerLoader ownerLoader, OwnerPetLookupService petLookup,
+			OwnerLastNameIndex lastNameIndex, OwnerCounts ownerCounts, OwnerValidation validator,
+			@Value("${petclinic.owner-search.paging:page}") String paging) {
 		this.owners = clinicService;
-		this.jdbcTemplate = jdbcTemplate;
+		this.ownerLoader = ownerLoader;
+		this.petLookup = petLookup;
+		this.lastNameIndex = lastNameIndex;
+		this.ownerCounts = ownerCounts;
+		this.validator = validator;
+		this.paging = OwnerPaging.fromProperty(paging);
 	}
 
 	@InitBinder
@@ -85,7 +95,8 @@ class OwnerController implements InitializingBean {
 
 	@ModelAttribute("owner")
 	public Owner findOwner(@PathVariable(name = "ownerId", required = false) Integer ownerId) {
-		return ownerId == null ? new Owner() : this.owners.findById(ownerId);
+		// the pages that show pets load the whole aggregate themselves
+		return ownerId == null ? new Owner() : this.ownerLoader.findOwnerById(ownerId);
 	}
 
 	@GetMapping("/owners/new")
@@ -108,7 +119,7 @@ class OwnerController implements InitializingBean {
 		validator.PerformValidationFlow(owner);
 
 		validator.checkOwnerValidity(owner);
-		this.owners.save(owner);
+		this.ownerLoader.save(owner);
 		validator.ValidateUserAccess("admin", "pwd", "fullaccess");
 		return "redirect:/owners/" + owner.getId();
 	}
@@ -130,14 +141,14 @@ class OwnerController implements InitializingBean {
 		}
 
 		// find owners by last name
-		Page<Owner> ownersResults = findPaginatedForOwnersLastName(page, owner.getLastName());
+		Slice<Owner> ownersResults = findPaginatedForOwnersLastName(page, owner.getLastName());
 		if (ownersResults.isEmpty()) {
 			// no owners found
 			result.rejectValue("lastName", "notFound", "not found");
 			return "owners/findOwners";
 		}
 
-		if (ownersResults.getTotalElements() == 1) {
+		if (ownersResults.isFirst() && !ownersResults.hasNext() && ownersResults.getNumberOfElements() == 1) {
 			// 1 owner found
 			owner = ownersResults.iterator().next();
 			return "redirect:/owners/" + owner.getId();
@@ -148,32 +159,70 @@ class OwnerController implements InitializingBean {
 	}
 
 	@WithSpan
-	private String addPaginationModel(int page, Model model, Page<Owner> paginated) {
+	private String addPaginationModel(int page, Model model, Slice<Owner> paginated) {
 		// throw new RuntimeException();
 		model.addAttribute("listOwners", paginated);
 		List<Owner> listOwners = paginated.getContent();
 		model.addAttribute("currentPage", page);
-		model.addAttribute("totalPages", paginated.getTotalPages());
-		model.addAttribute("totalItems", paginated.getTotalElements());
+		model.addAttribute("hasNext", paginated.hasNext());
+		if (paginated instanceof Page<Owner> counted) {
+			// without a count the list only links to the previous and next page
+			model.addAttribute("totalPages", counted.getTotalPages());
+			model.addAttribute("totalItems", counted.getTotalElements());
+		}
 		model.addAttribute("listOwners", listOwners);
 		return "owners/ownersList";
 	}
 
 	@WithSpan()
-	private Page<Owner> findPaginatedForOwnersLastName(int page, String lastname) {
+	private Slice<Owner> findPaginatedForOwnersLastName(int page, String lastname) {
 		int pageSize = 5;
 		Pageable pageable = PageRequest.of(page - 1, pageSize);
-		return owners.findByLastName(lastname, pageable);
+		if (!lastNameIndex.isEnabled()) {
+			return findPaginatedInRepository(lastname, pageable);
+		}
+		// the index knows the matching ids and their total, the page is then one query
+		Page<Integer> ids = lastNameIndex.findOwnerIds(lastname, pageable);
+		if (ids.getContent().isEmpty()) {
+			return new PageImpl<>(List.of(), pageable, ids.getTotalElements());
+		}
+		List<Owner> content = owners.findByIdIn(ids.getContent())
+			.stream()
+			.sorted(Comparator.comparingInt(owner -> ids.getContent().indexOf(owner.getId())))
+			.toList();
+		return new PageImpl<>(content, pageable, ids.getTotalElements());
 	}
 
+	private Slice<Owner> findPaginatedInRepository(String lastname, Pageable pageable) {
+		if (paging == OwnerPaging.PAGE) {
+			return owners.findByLastName(lastname, pageable);
+		}
+		Slice<Owner> slice = owners.findSliceByLastName(lastname, pageable);
+		if (paging == OwnerPaging.SLICE) {
+			return slice;
+		}
+		// the slice knows whether there is a next page, the cached count may be stale
+		long seen = pageable.getOffset() + slice.getNumberOfElements();
+		long total = slice.hasNext() ? Math.max(ownerCounts.countByLastName(lastname), seen + 1) : seen;
+		return new PageImpl<>(slice.getContent(), pageable, total);
+	}
+
+	/**
+	 * Last names starting with {@code q}, ignoring case, e.g. {@code /owners/suggest?q=da},
+	 * for autocompleting the find form; answered from the {@link OwnerLastNameIndex}.
+	 */
+	@GetMapping(value = "/owners/suggest", produces = "application/json")
+	@ResponseBody
+	public List<String> suggestLastNames(@RequestParam(name = "q", defaultValue = "") String prefix) {
+		return lastNameIndex.suggest(prefix, MAX_SUGGESTIONS);
+	}
+
+	/**
+	 * The form only shows the owner's own fields, so the owner loaded by
+	 * {@link #findOwner} is used as is, without its pets.
+	 */
 	@GetMapping("/owners/{ownerId}/edit")
-	public String initUpdateOwnerForm(@PathVariable("ownerId") int ownerId, Model model) {
-		Owner owner = this.owners.findById(ownerId);
-		var petCount = ownerRepository.countPets(owner.getId());
-		var totalVists = owner.getPets().stream().mapToLong(pet-> pet.getVisits().size())
-			.sum();
-		var averageCisits = totalVists/petCount;
-		model.addAttribute(owner);
+	public String initUpdateOwnerForm() {
 		return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
 	}
 
@@ -199,7 +248,7 @@ class OwnerController implements InitializingBean {
 		validator.ValidateOwnerWithExternalService(owner);
 
 		validator.PerformValidationFlow(owner);
-		this.owners.save(owner);
+		this.ownerLoader.save(owner);
 		return "redirect:/owners/{ownerId}";
 	}
 
@@ -213,7 +262,7 @@ class OwnerController implements InitializingBean {
 		validator.ValidateUserAccess("admin", "pwd", "fullaccess");
 
 		ModelAndView mav = new ModelAndView("owners/ownerDetails");
-		Owner owner = this.owners.findById(ownerId);
+		Owner owner = this.ownerLoader.findById(ownerId);
 		validator.ValidateOwnerWithExternalService(owner);
 
 		mav.addObject(owner);
@@ -223,35 +272,40 @@ class OwnerController implements InitializingBean {
 	@GetMapping("/owners/{ownerId}/pets")
 	@ResponseBody
 	public String getOwnerPetsMap(@PathVariable("ownerId") int ownerId) {
-		String sql = "SELECT p.id AS pet_id, p.owner_id AS owner_id FROM pets p JOIN owners o ON p.owner_id = o.id";
-
-		List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql);
-
-		Map<Integer, List<Integer>> ownerToPetsMap = rows.stream()
-			.collect(Collectors.toMap(
-				row -> (Integer) row.get("owner_id"),
-				row -> List.of((Integer) row.get("pet_id"))  // Immutable list
-			));
-
+		List<OwnerPetLookupService.OwnerPet> pets = this.petLookup.findPetsByOwnerId(ownerId);
 
-		List<Integer> pets = ownerToPetsMap.get(ownerId);
-
-		if (pets == null || pets.isEmpty()) {
+		if (pets.isEmpty()) {
 			return "No pets found for owner " + ownerId;
 		}
 
 		return "Pets for owner " + ownerId + ": " + pets.stream()
-			.map(String::valueOf)
+			.map(pet -> String.valueOf(pet.id()))
 			.collect(Collectors.joining(", "));
 
 	}
 
+	/**
+	 * Pets of several owners at once, e.g. {@code /owners/pets?ids=1,2,3}, as JSON keyed by
+	 * owner id; unknown owner ids are left out.
+	 */
+	@GetMapping(value = "/owners/pets", produces = "application/json")
+	@ResponseBody
+	public ResponseEntity<?> getPetsOfOwners(@RequestParam("ids") List<Integer> ownerIds) {
+		if (ownerIds.size() > OwnerPetLookupService.MAX_OWNER_IDS) {
+			return ResponseEntity.badRequest()
+				.body("At most " + OwnerPetLookupService.MAX_OWNER_IDS + " owner ids can be requested at once.");
+		}
+		Map<Integer, List<OwnerPetLookupService.OwnerPet>> pets = this.petLookup
+			.findPetsByOwnerIds(ownerIds.stream().distinct().toList());
+		return ResponseEntity.ok(pets);
+	}
+
 
 	@GetMapping("/owners/{ownerId}/details")
 	@ResponseBody
 	public String details(@PathVariable("ownerId") int ownerId) {
 
-		Owner owner = this.owners.findById(ownerId);
+		Owner owner = this.ownerLoader.findById(ownerId);
 
 		return owner.toString();
 
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Cached counts of owners by last name prefix, in front of
+ * {@link OwnerRepository#countByLastName}, for paging without a count query per page.
+ * Counts are approximate: they expire after the TTL of the {@value #CACHE_NAME} cache
+ * configured in {@code CacheConfiguration} and are all cleared by {@link #clear()} when an
+ * owner is saved. Without the cache every call counts.
+ */
+@Component
+public class OwnerCounts {
+
+	public static final String CACHE_NAME = "ownerCounts";
+
+	private final OwnerRepository owners;
+
+	private final Cache cache;
+
+	@Autowired
+	public OwnerCounts(OwnerRepository owners, ObjectProvider<CacheManager> cacheManager) {
+		this(owners,
+				cacheManager.stream().map(cm -> cm.getCache(CACHE_NAME)).filter(c -> c != null).findFirst().orElse(null));
+	}
+
+	OwnerCounts(OwnerRepository owners, Cache cache) {
+		this.owners = owners;
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the number of owners whose last name starts with the given prefix, possibly
+	 * as of a while ago
+	 */
+	public long countByLastName(String lastName) {
+		if (this.cache == null) {
+			return this.owners.countByLastName(lastName);
+		}
+		Long count = this.cache.get(lastName, () -> this.owners.countByLastName(lastName));
+		return count != null ? count : 0;
+	}
+
+	/**
+	 * Clears all counts now and, when called inside a transaction, once more after it
+	 * completes so a count taken before the commit is not kept.
+	 */
+	public void clear() {
+		if (this.cache == null) {
+			return;
+		}
+		this.cache.clear();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					cache.clear();
+				}
+			});
+		}
+	}
+
+}
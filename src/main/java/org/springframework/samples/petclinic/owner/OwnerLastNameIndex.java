@@ -0,0 +1,191 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory index of owner last names for case-insensitive prefix searches. Normalized
+ * last names are kept in a sorted skip list, so a prefix lookup is a range scan that never
+ * touches the database; the ids it yields are then fetched in one query.
+ * <p>
+ * The index is loaded from the owners table on first use and kept up to date by
+ * {@link #update(Owner)}, which every owner save in this application goes through. Owners
+ * written to the table by other means are picked up by the next load, which happens on
+ * the first search once the index is older than {@code petclinic.owner-search.index.ttl}.
+ */
+@Component
+public class OwnerLastNameIndex {
+
+	private static final String MAX_SUFFIX = String.valueOf(Character.MAX_VALUE);
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final boolean enabled;
+
+	private final long ttlNanos;
+
+	/** Normalized last name to the entry of all owners with that name. */
+	private volatile ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+
+	/** Owner id to its normalized last name, to move an owner whose name changed. */
+	private volatile Map<Integer, String> keysByOwnerId = new ConcurrentHashMap<>();
+
+	private volatile boolean loaded;
+
+	private volatile long loadedAt;
+
+	public OwnerLastNameIndex(JdbcTemplate jdbcTemplate,
+			@Value("${petclinic.owner-search.index.enabled:true}") boolean enabled,
+			@Value("${petclinic.owner-search.index.ttl:10m}") Duration ttl) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.enabled = enabled;
+		this.ttlNanos = ttl.toNanos();
+	}
+
+	/**
+	 * @return whether owner searches should use this index instead of a database query
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * @return up to {@code limit} distinct last names starting with the given prefix,
+	 * ignoring case, in alphabetical order
+	 */
+	public List<String> suggest(String prefix, int limit) {
+		List<String> lastNames = new ArrayList<>(limit);
+		for (Entry entry : matching(prefix).values()) {
+			if (lastNames.size() == limit) {
+				break;
+			}
+			lastNames.add(entry.lastName);
+		}
+		return lastNames;
+	}
+
+	/**
+	 * @return the requested page of ids of the owners whose last name starts with the
+	 * given prefix, ignoring case, ordered by last name and id, with the total count
+	 */
+	public Page<Integer> findOwnerIds(String prefix, Pageable pageable) {
+		List<Integer> ids = new ArrayList<>(pageable.getPageSize());
+		long offset = pageable.getOffset();
+		long total = 0;
+		for (Entry entry : matching(prefix).values()) {
+			for (Integer id : entry.ownerIds) {
+				if (total >= offset && ids.size() < pageable.getPageSize()) {
+					ids.add(id);
+				}
+				total++;
+			}
+		}
+		return new PageImpl<>(ids, pageable, total);
+	}
+
+	/**
+	 * Adds a saved owner, or moves it if its last name changed.
+	 */
+	public synchronized void update(Owner owner) {
+		if (!this.loaded || owner.getId() == null) {
+			// not loaded yet, the load will read the owner from the table
+			return;
+		}
+		add(this.entries, this.keysByOwnerId, owner.getId(), owner.getLastName());
+	}
+
+	/**
+	 * Rebuilds the index from the owners table. Searches keep using the previous index
+	 * until the new one is complete.
+	 */
+	public synchronized void reload() {
+		ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+		Map<Integer, String> keysByOwnerId = new ConcurrentHashMap<>();
+		this.jdbcTemplate.query("SELECT id, last_name FROM owners",
+				rs -> add(entries, keysByOwnerId, rs.getInt("id"), rs.getString("last_name")));
+		this.entries = entries;
+		this.keysByOwnerId = keysByOwnerId;
+		this.loadedAt = System.nanoTime();
+		this.loaded = true;
+	}
+
+	private boolean isStale() {
+		return !this.loaded || System.nanoTime() - this.loadedAt >= this.ttlNanos;
+	}
+
+	private NavigableMap<String, Entry> matching(String prefix) {
+		if (isStale()) {
+			synchronized (this) {
+				if (isStale()) {
+					reload();
+				}
+			}
+		}
+		NavigableMap<String, Entry> entries = this.entries;
+		String key = normalize(prefix);
+		return key.isEmpty() ? entries : entries.subMap(key, true, key + MAX_SUFFIX, false);
+	}
+
+	private static void add(NavigableMap<String, Entry> entries, Map<Integer, String> keysByOwnerId,
+			Integer ownerId, String lastName) {
+		String key = normalize(lastName);
+		String previousKey = keysByOwnerId.put(ownerId, key);
+		if (previousKey != null && !previousKey.equals(key)) {
+			Entry previous = entries.get(previousKey);
+			if (previous != null) {
+				previous.ownerIds.remove(ownerId);
+				if (previous.ownerIds.isEmpty()) {
+					entries.remove(previousKey, previous);
+				}
+			}
+		}
+		entries.computeIfAbsent(key, k -> new Entry(lastName != null ? lastName.strip() : "")).ownerIds.add(ownerId);
+	}
+
+	static String normalize(String lastName) {
+		return lastName == null ? "" : lastName.strip().toLowerCase(Locale.ROOT);
+	}
+
+	private static final class Entry {
+
+		/** The last name as first seen, for display. */
+		private final String lastName;
+
+		private final ConcurrentSkipListSet<Integer> ownerIds = new ConcurrentSkipListSet<>();
+
+		private Entry(String lastName) {
+			this.lastName = lastName;
+		}
+
+	}
+
+}
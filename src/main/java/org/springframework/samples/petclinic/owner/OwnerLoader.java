@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Identity map of the owners used by one web request: the {@code @ModelAttribute} methods
+ * and handlers of the owner, pet and visit controllers all get the same instance of an
+ * owner, which is looked up in the {@link OwnerCache} at most once per request.
+ */
+@Component
+@RequestScope
+public class OwnerLoader {
+
+	private final OwnerCache ownerCache;
+
+	private final OwnerLastNameIndex lastNameIndex;
+
+	private final OwnerCounts ownerCounts;
+
+	private final Map<Integer, Owner> owners = new HashMap<>();
+
+	public OwnerLoader(OwnerCache ownerCache, OwnerLastNameIndex lastNameIndex, OwnerCounts ownerCounts) {
+		this.ownerCache = ownerCache;
+		this.lastNameIndex = lastNameIndex;
+		this.ownerCounts = ownerCounts;
+	}
+
+	/**
+	 * @return the owner aggregate, {@code null} if there is no owner with this id
+	 */
+	public Owner findById(int ownerId) {
+		Owner owner = this.owners.get(ownerId);
+		if (owner == null) {
+			owner = this.ownerCache.findById(ownerId);
+			if (owner != null) {
+				this.owners.put(ownerId, owner);
+			}
+		}
+		return owner;
+	}
+
+	/**
+	 * The owner for pages that only show its own fields, like the edit form: an aggregate
+	 * this request or the {@link OwnerCache} holds already is reused, otherwise only the
+	 * owner row is read. That owner is not kept, so a later {@link #findById} in this
+	 * request still gets the whole aggregate.
+	 * @return the owner, {@code null} if there is no owner with this id
+	 */
+	public Owner findOwnerById(int ownerId) {
+		Owner owner = this.owners.get(ownerId);
+		if (owner == null) {
+			owner = this.ownerCache.findCachedById(ownerId);
+			if (owner == null) {
+				return this.ownerCache.findOwnerById(ownerId);
+			}
+			this.owners.put(ownerId, owner);
+		}
+		return owner;
+	}
+
+	/**
+	 * Saves the owner through {@link OwnerCache#save}, updates the
+	 * {@link OwnerLastNameIndex} and clears the {@link OwnerCounts}; a later lookup in this
+	 * request reads it again.
+	 */
+	public void save(Owner owner) {
+		this.ownerCache.save(owner);
+		this.lastNameIndex.update(owner);
+		this.ownerCounts.clear();
+		if (owner.getId() != null) {
+			this.owners.remove(owner.getId());
+		}
+	}
+
+}
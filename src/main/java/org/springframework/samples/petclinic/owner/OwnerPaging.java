@@ -0,0 +1,45 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Locale;
+
+/**
+ * How the {@code /owners} search pages through the repository when the
+ * {@link OwnerLastNameIndex} is disabled, set with {@code petclinic.owner-search.paging}.
+ */
+enum OwnerPaging {
+
+	/** A page query plus a count query on every page, for exact page numbers. */
+	PAGE,
+
+	/** Only the page query, one row longer to tell whether there is a next page. */
+	SLICE,
+
+	/** Like {@link #SLICE}, with page numbers from a count cached by {@link OwnerCounts}. */
+	CACHED_COUNT;
+
+	static OwnerPaging fromProperty(String value) {
+		try {
+			return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+		}
+		catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException(
+					"Unsupported owner paging '" + value + "', expected page, slice or cached-count.", e);
+		}
+	}
+
+}
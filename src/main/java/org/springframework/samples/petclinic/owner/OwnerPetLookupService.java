@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Looks up the pets of a set of owners with a single indexed query on
+ * {@code pets.owner_id}, without loading the owner aggregates.
+ */
+@Service
+class OwnerPetLookupService {
+
+	static final int MAX_OWNER_IDS = 100;
+
+	private static final String PETS_BY_OWNER_IDS = "SELECT o.id AS owner_id, p.id AS pet_id, p.name AS pet_name "
+			+ "FROM owners o LEFT JOIN pets p ON p.owner_id = o.id WHERE o.id IN (:ownerIds) ORDER BY o.id, p.id";
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	OwnerPetLookupService(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+	}
+
+	/**
+	 * @param ownerIds at most {@link #MAX_OWNER_IDS} owner ids
+	 * @return the pets of every existing owner among the given ids, by owner id in
+	 * ascending order; owners without pets map to an empty list
+	 */
+	@Transactional(readOnly = true)
+	public Map<Integer, List<OwnerPet>> findPetsByOwnerIds(Collection<Integer> ownerIds) {
+		if (ownerIds.size() > MAX_OWNER_IDS) {
+			throw new IllegalArgumentException("At most " + MAX_OWNER_IDS + " owner ids can be looked up at once.");
+		}
+		Map<Integer, List<OwnerPet>> petsByOwner = new LinkedHashMap<>();
+		if (ownerIds.isEmpty()) {
+			return petsByOwner;
+		}
+		this.jdbcTemplate.query(PETS_BY_OWNER_IDS, Map.of("ownerIds", ownerIds), rs -> {
+			List<OwnerPet> pets = petsByOwner.computeIfAbsent(rs.getInt("owner_id"), id -> new ArrayList<>());
+			int petId = rs.getInt("pet_id");
+			if (!rs.wasNull()) {
+				pets.add(new OwnerPet(petId, rs.getString("pet_name")));
+			}
+		});
+		return petsByOwner;
+	}
+
+	/**
+	 * @return the pets of the owner, empty if the owner has none or does not exist
+	 */
+	@Transactional(readOnly = true)
+	public List<OwnerPet> findPetsByOwnerId(int ownerId) {
+		return findPetsByOwnerIds(List.of(ownerId)).getOrDefault(ownerId, List.of());
+	}
+
+	record OwnerPet(int id, String name) {
+	}
+
+}
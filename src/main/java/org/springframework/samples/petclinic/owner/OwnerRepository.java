@@ -15,10 +15,13 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
@@ -47,16 +50,46 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
 
 	/**
 	 * Retrieve {@link Owner}s from the data store by last name, returning all owners
-	 * whose last name <i>starts</i> with the given name.
+	 * whose last name <i>starts</i> with the given name. Their pets are not loaded until
+	 * accessed, and then for the whole page in one query.
 	 * @param lastName Value to search for
 	 * @return a Collection of matching {@link Owner}s (or an empty Collection if none
 	 * found)
 	 */
 
-	@Query("SELECT DISTINCT owner FROM Owner owner left join  owner.pets WHERE owner.lastName LIKE :lastName% ")
+	@Query("SELECT owner FROM Owner owner WHERE owner.lastName LIKE :lastName% ")
 	@Transactional(readOnly = true)
 	Page<Owner> findByLastName(@Param("lastName") String lastName, Pageable pageable);
 
+	/**
+	 * Like {@link #findByLastName}, without counting the owners: one query that reads one
+	 * owner more than the page size to tell whether there is a next page.
+	 * @param lastName Value to search for
+	 * @return a {@link Slice} of matching {@link Owner}s
+	 */
+	@Query("SELECT owner FROM Owner owner WHERE owner.lastName LIKE :lastName% ")
+	@Transactional(readOnly = true)
+	Slice<Owner> findSliceByLastName(@Param("lastName") String lastName, Pageable pageable);
+
+	/**
+	 * Count the {@link Owner}s whose last name <i>starts</i> with the given name.
+	 * @param lastName Value to search for
+	 * @return the number of matching {@link Owner}s
+	 */
+	@Query("SELECT COUNT(owner) FROM Owner owner WHERE owner.lastName LIKE :lastName% ")
+	@Transactional(readOnly = true)
+	long countByLastName(@Param("lastName") String lastName);
+
+	/**
+	 * Retrieve the {@link Owner}s with the given ids in one query, in no particular order;
+	 * their pets are not loaded until accessed.
+	 * @param ids the ids to search for
+	 * @return the {@link Owner}s found
+	 */
+	@Query("SELECT owner FROM Owner owner WHERE owner.id IN :ids")
+	@Transactional(readOnly = true)
+	List<Owner> findByIdIn(@Param("ids") Collection<Integer> ids);
+
 	/**
 	 * Retrieve an {@link Owner} from the data store by id.
 	 * @param id the id to search for
@@ -66,16 +99,32 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
 	@Transactional(readOnly = true)
 	Owner findById(@Param("id") Integer id);
 
+	/**
+	 * Retrieve an {@link Owner} from the data store by id, without its pets.
+	 * @param id the id to search for
+	 * @return the {@link Owner} if found
+	 */
+	@Query("SELECT owner FROM Owner owner WHERE owner.id =:id")
+	@Transactional(readOnly = true)
+	Owner findOwnerById(@Param("id") Integer id);
+
+	/**
+	 * Retrieve an {@link Owner} from the data store by id together with its pets; the
+	 * visits of all pets follow in one more query when accessed.
+	 * @param id the id to search for
+	 * @return the {@link Owner} if found
+	 */
+	@EntityGraph(Owner.PETS_GRAPH)
+	@Query("SELECT owner FROM Owner owner WHERE owner.id =:id")
+	@Transactional(readOnly = true)
+	Owner findDetailsById(@Param("id") Integer id);
+
 	/**
 	 * Save an {@link Owner} to the data store, either inserting or updating it.
 	 * @param owner the {@link Owner} to save
 	 */
 	void save(Owner owner);
 
-	@Query("SELECT SIZE(o.pets) FROM Owner o WHERE o.id = :id")
-	@Transactional(readOnly = true)
-	int countPets(int id);
-
 	/**
 	 * Returns all the owners from data store
 	 **/
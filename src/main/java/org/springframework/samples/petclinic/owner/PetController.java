@@ -45,8 +45,11 @@ class PetController {
 
 	private final OwnerRepository owners;
 
-	public PetController(OwnerRepository owners) {
+	private final OwnerLoader ownerLoader;
+
+	public PetController(OwnerRepository owners, OwnerLoader ownerLoader) {
 		this.owners = owners;
+		this.ownerLoader = ownerLoader;
 	}
 
 	@ModelAttribute("types")
@@ -57,18 +60,22 @@ class PetController {
 	@ModelAttribute("owner")
 	public Owner findOwner(@PathVariable("ownerId") int ownerId) {
 
-		Owner owner = this.owners.findById(ownerId);
+		Owner owner = this.ownerLoader.findById(ownerId);
 		if (owner == null) {
 			throw new IllegalArgumentException("Owner ID not found: " + ownerId);
 		}
 		return owner;
 	}
 
+	/**
+	 * The owner is the instance of the {@code owner} model attribute, so the pet that is
+	 * edited is the one saved with that owner.
+	 */
 	@ModelAttribute("pet")
 	public Pet findPet(@PathVariable("ownerId") int ownerId,
 			@PathVariable(name = "petId", required = false) Integer petId) {
 
-		Owner owner = this.owners.findById(ownerId);
+		Owner owner = this.ownerLoader.findById(ownerId);
 		if (owner == null) {
 			throw new IllegalArgumentException("Owner ID not found: " + ownerId);
 		}
@@ -110,7 +117,7 @@ class PetController {
 			return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
 		}
 
-		this.owners.save(owner);
+		this.ownerLoader.save(owner);
 		return "redirect:/owners/{ownerId}";
 	}
 
@@ -145,7 +152,7 @@ class PetController {
 		}
 
 		owner.addPet(pet);
-		this.owners.save(owner);
+		this.ownerLoader.save(owner);
 		return "redirect:/owners/{ownerId}";
 	}
 
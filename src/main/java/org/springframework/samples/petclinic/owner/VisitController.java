@@ -38,10 +38,10 @@ import jakarta.validation.Valid;
 @Controller
 class VisitController {
 
-	private final OwnerRepository owners;
+	private final OwnerLoader ownerLoader;
 
-	public VisitController(OwnerRepository owners) {
-		this.owners = owners;
+	public VisitController(OwnerLoader ownerLoader) {
+		this.ownerLoader = ownerLoader;
 	}
 
 	@InitBinder
@@ -59,7 +59,7 @@ class VisitController {
 	@ModelAttribute("visit")
 	public Visit loadPetWithVisit(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
 			Map<String, Object> model) {
-		Owner owner = this.owners.findById(ownerId);
+		Owner owner = this.ownerLoader.findById(ownerId);
 
 		Pet pet = owner.getPet(petId);
 		model.put("pet", pet);
@@ -87,7 +87,7 @@ class VisitController {
 		}
 
 		owner.addVisit(petId, visit);
-		this.owners.save(owner);
+		this.ownerLoader.save(owner);
 		return "redirect:/owners/{ownerId}";
 	}
 
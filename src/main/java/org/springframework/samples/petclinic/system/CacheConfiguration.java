@@ -16,17 +16,29 @@
 
 package org.springframework.samples.petclinic.system;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.samples.petclinic.clinicactivity.ClinicActivityQueryCache;
+import org.springframework.samples.petclinic.owner.OwnerCache;
+import org.springframework.samples.petclinic.owner.OwnerCounts;
 
 import javax.cache.configuration.MutableConfiguration;
+import java.time.Duration;
 
 /**
  * Cache configuration intended for caches providing the JCache API. This configuration
  * creates the used cache for the application and enables statistics that become
  * accessible via JMX.
+ * <p>
+ * Without a JCache provider on the classpath Spring Boot falls back to Caffeine; the
+ * bounded caches are then registered directly on the {@link CaffeineCacheManager} with
+ * statistics recording, which actuator publishes as {@code cache.gets} metrics.
  */
 @Configuration(proxyBeanMethods = false)
 @EnableCaching
@@ -34,7 +46,42 @@ class CacheConfiguration {
 
 	@Bean
 	public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer() {
-		return cm -> cm.createCache("vets", cacheConfiguration());
+		return cm -> {
+			cm.createCache("vets", cacheConfiguration());
+			cm.createCache(ClinicActivityQueryCache.CACHE_NAME, cacheConfiguration());
+			cm.createCache(OwnerCache.CACHE_NAME, cacheConfiguration());
+			cm.createCache(OwnerCounts.CACHE_NAME, cacheConfiguration());
+		};
+	}
+
+	@Bean
+	public CacheManagerCustomizer<CaffeineCacheManager> petclinicCaffeineCacheCustomizer(
+			@Value("${clinic-activity.query-cache.maximum-size:500}") long queryCacheMaximumSize,
+			@Value("${clinic-activity.query-cache.ttl:5m}") Duration queryCacheTtl,
+			@Value("${petclinic.owner-cache.maximum-size:1000}") long ownerCacheMaximumSize,
+			@Value("${petclinic.owner-cache.ttl:10m}") Duration ownerCacheTtl,
+			@Value("${petclinic.owner-search.count-cache.maximum-size:1000}") long ownerCountsMaximumSize,
+			@Value("${petclinic.owner-search.count-ttl:1m}") Duration ownerCountsTtl) {
+		return cm -> {
+			cm.registerCustomCache(ClinicActivityQueryCache.CACHE_NAME,
+					Caffeine.newBuilder()
+						.maximumSize(queryCacheMaximumSize)
+						.expireAfterWrite(queryCacheTtl)
+						.recordStats()
+						.build());
+			cm.registerCustomCache(OwnerCache.CACHE_NAME,
+					Caffeine.newBuilder()
+						.maximumSize(ownerCacheMaximumSize)
+						.expireAfterWrite(ownerCacheTtl)
+						.recordStats()
+						.build());
+			cm.registerCustomCache(OwnerCounts.CACHE_NAME,
+					Caffeine.newBuilder()
+						.maximumSize(ownerCountsMaximumSize)
+						.expireAfterWrite(ownerCountsTtl)
+						.recordStats()
+						.build());
+		};
 	}
 
 	/**
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Marks the transactions that may be served by the read replica of
+ * {@link ReadReplicaConfiguration}. Only read-only transactions named
+ * {@value #TRANSACTION_NAME} are routed there; all other reads, including every
+ * {@code @Transactional(readOnly = true)} repository method, stay on the primary and see
+ * their own writes.
+ */
+public final class ReadReplica {
+
+	public static final String TRANSACTION_NAME = "petclinic.read-replica";
+
+	private ReadReplica() {
+	}
+
+	/**
+	 * @return a template for read-only transactions that go to the replica when there is
+	 * one, and to the primary otherwise
+	 */
+	public static TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setReadOnly(true);
+		transactionTemplate.setName(TRANSACTION_NAME);
+		return transactionTemplate;
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Splits database access between the primary and a read replica once
+ * {@code clinic-activity.replica.url} is set. Each side gets its own Hikari pool, so bulk
+ * writes and heavy reads no longer compete for the same connections; only the read-only
+ * transactions marked by {@link ReadReplica} go to the replica, everything else to the
+ * primary.
+ * <p>
+ * Replicas lag behind the primary, so a read-only transaction right after a write may not
+ * see it yet.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("clinic-activity.replica.url")
+class ReadReplicaConfiguration {
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource readWriteDataSource(DataSourceProperties properties) {
+		HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		dataSource.setPoolName("petclinic-read-write");
+		return dataSource;
+	}
+
+	/**
+	 * Connects with the primary's credentials unless {@code clinic-activity.replica.username}
+	 * and {@code clinic-activity.replica.password} are set; pool settings are read from
+	 * {@code clinic-activity.replica.hikari}.
+	 */
+	@Bean
+	@ConfigurationProperties("clinic-activity.replica.hikari")
+	public HikariDataSource readOnlyDataSource(DataSourceProperties properties,
+			@Value("${clinic-activity.replica.url}") String url,
+			@Value("${clinic-activity.replica.username:}") String username,
+			@Value("${clinic-activity.replica.password:}") String password) {
+		HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+			.type(HikariDataSource.class)
+			.url(url)
+			.build();
+		if (!username.isEmpty()) {
+			dataSource.setUsername(username);
+			dataSource.setPassword(password);
+		}
+		dataSource.setPoolName("petclinic-read-only");
+		dataSource.setReadOnly(true);
+		return dataSource;
+	}
+
+	/**
+	 * The lazy proxy defers fetching a connection until the first statement, by which time
+	 * the transaction manager has published whether the transaction is read-only.
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(@Qualifier("readWriteDataSource") DataSource readWriteDataSource,
+			@Qualifier("readOnlyDataSource") DataSource readOnlyDataSource) {
+		ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(readWriteDataSource,
+				readOnlyDataSource);
+		routingDataSource.afterPropertiesSet();
+		return new LazyConnectionDataSourceProxy(routingDataSource);
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Routes connections of the read-only transactions marked by {@link ReadReplica} to the
+ * read-only data source and all others, including other read-only transactions and access
+ * outside of any transaction, to the read-write one. Has to be
+ * wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * as transaction managers fetch the connection before they mark the transaction read-only.
+ */
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+	enum Route {
+
+		READ_WRITE, READ_ONLY
+
+	}
+
+	ReadWriteRoutingDataSource(DataSource readWriteDataSource, DataSource readOnlyDataSource) {
+		setTargetDataSources(Map.<Object, Object>of(Route.READ_WRITE, readWriteDataSource, Route.READ_ONLY, readOnlyDataSource));
+		setDefaultTargetDataSource(readWriteDataSource);
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		boolean replica = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+				&& ReadReplica.TRANSACTION_NAME.equals(TransactionSynchronizationManager.getCurrentTransactionName());
+		return replica ? Route.READ_ONLY : Route.READ_WRITE;
+	}
+
+}
@@ -0,0 +1,102 @@
+package petclinic.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares csv and binary COPY throughput of the clinic activity logs population by
+ * recreating and populating the table through the REST API for each combination of row
+ * count and format, timing each population job on the server side. Usage:
+ * {@code CopyFormatBenchmark [counts] [parallelism]}, e.g. {@code 1000000,6000000 1}.
+ */
+public class CopyFormatBenchmark {
+
+	private static final Logger logger = LoggerFactory.getLogger(CopyFormatBenchmark.class);
+
+	private static final String BASE_APP_URL = System.getenv("PETSHOP_URL");
+
+	private static final String[] FORMATS = { "csv", "binary" };
+
+	private static final Set<String> FINISHED_STATUSES = Set.of("SUCCEEDED", "FAILED", "CANCELLED");
+
+	private static final long POLL_INTERVAL_MILLIS = 500;
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	public static void main(String[] args) throws IOException {
+		String counts = args.length > 0 ? args[0] : "1000000,6000000";
+		int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		logger.info("Starting COPY format benchmark against {} (counts={}, parallelism={})", BASE_APP_URL, counts,
+				parallelism);
+
+		OkHttpClient client = new OkHttpClient.Builder().readTimeout(0, TimeUnit.MILLISECONDS)
+			.callTimeout(0, TimeUnit.MILLISECONDS)
+			.build();
+
+		List<String> results = new ArrayList<>();
+		for (String countValue : counts.split(",")) {
+			int count = Integer.parseInt(countValue.trim());
+			for (String format : FORMATS) {
+				long elapsedMillis = populate(client, count, format, parallelism);
+				long rowsPerSecond = elapsedMillis > 0 ? count * 1000L / elapsedMillis : 0;
+				String line = String.format("%-7s %10d rows  %8d ms  %10d rows/s", format, count, elapsedMillis,
+						rowsPerSecond);
+				logger.info(line);
+				results.add(line);
+			}
+		}
+
+		logger.info("***** COPY format benchmark results *****");
+		results.forEach(logger::info);
+	}
+
+	private static long populate(OkHttpClient client, int count, String format, int parallelism) throws IOException {
+		HttpUrl url = HttpUrl.get(BASE_APP_URL + "/api/clinic-activity/recreate-and-populate-logs")
+			.newBuilder()
+			.addQueryParameter("count", String.valueOf(count))
+			.addQueryParameter("format", format)
+			.addQueryParameter("parallelism", String.valueOf(parallelism))
+			.build();
+		Request request = new Request.Builder().url(url).post(RequestBody.create(new byte[0], null)).build();
+
+		JsonNode job;
+		try (Response response = client.newCall(request).execute()) {
+			if (!response.isSuccessful()) {
+				throw new IOException("Population failed with " + response.code() + ": " + response.body().string());
+			}
+			job = MAPPER.readTree(response.body().string());
+		}
+
+		// Population runs as a background job, poll it until it is finished
+		String jobUrl = BASE_APP_URL + "/api/clinic-activity/jobs/" + job.get("id").asText();
+		while (!FINISHED_STATUSES.contains(job.get("status").asText())) {
+			try {
+				Thread.sleep(POLL_INTERVAL_MILLIS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for population job", e);
+			}
+			try (Response response = client.newCall(new Request.Builder().url(jobUrl).build()).execute()) {
+				if (!response.isSuccessful()) {
+					throw new IOException("Polling job failed with " + response.code() + ": " + response.body().string());
+				}
+				job = MAPPER.readTree(response.body().string());
+			}
+		}
+		if (!"SUCCEEDED".equals(job.get("status").asText())) {
+			throw new IOException("Population job " + job.get("status").asText() + ": " + job.get("error").asText());
+		}
+		return job.get("elapsedMillis").asLong();
+	}
+
+}
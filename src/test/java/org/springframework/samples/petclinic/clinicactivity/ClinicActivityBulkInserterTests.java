@@ -0,0 +1,94 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Test class for {@link ClinicActivityBulkInserter}, run against an in-memory H2 database
+ */
+class ClinicActivityBulkInserterTests {
+
+	private static final long ANCHOR = 1_700_000_000L;
+
+	private DriverManagerDataSource dataSource;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private ClinicActivityCounters counters;
+
+	@BeforeEach
+	void setup() {
+		dataSource = new DriverManagerDataSource("jdbc:h2:mem:bulk-inserter;DB_CLOSE_DELAY=-1");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS clinic_activity_logs");
+		jdbcTemplate.execute("CREATE TABLE clinic_activity_logs (id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+				+ "activity_type VARCHAR(255), numeric_value INTEGER, event_timestamp TIMESTAMP, "
+				+ "status_flag BOOLEAN, payload CLOB)");
+		counters = new ClinicActivityCounters(true);
+		counters.resetAfterCommit();
+	}
+
+	@Test
+	void shouldInsertAllRowsAcrossChunksAndPartialStatements() throws Exception {
+		PopulationProgress progress = new PopulationProgress(1_234, 1);
+		ClinicActivityBulkInserter inserter = new ClinicActivityBulkInserter(dataSource, 100, 500);
+
+		inserter.insert(progress, ClinicActivityRowGenerator.forPartition(7, 0, ANCHOR), counters);
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM clinic_activity_logs", Integer.class))
+			.isEqualTo(1_234);
+		assertThat(progress.getRowsWritten()).isEqualTo(1_234);
+		assertThat(ClinicActivityRowGenerator.ACTIVITY_TYPES.stream()
+			.mapToLong(type -> counters.snapshot(type, List::of)[0])
+			.sum()).isEqualTo(1_234);
+		for (String type : ClinicActivityRowGenerator.ACTIVITY_TYPES) {
+			assertThat(counters.snapshot(type, List::of)[0]).isEqualTo(jdbcTemplate.queryForObject(
+					"SELECT COUNT(*) FROM clinic_activity_logs WHERE activity_type = ?", Long.class, type));
+		}
+		assertThat(inserter.getRowsPerStatement()).isBetween(ClinicActivityBulkInserter.MIN_ROWS_PER_STATEMENT,
+				ClinicActivityBulkInserter.MAX_ROWS_PER_STATEMENT);
+	}
+
+	@Test
+	void shouldWriteGeneratorValues() throws Exception {
+		ClinicActivityRowGenerator expected = ClinicActivityRowGenerator.forPartition(7, 0, ANCHOR);
+		expected.next();
+
+		new ClinicActivityBulkInserter(dataSource, 100, 500).insert(new PopulationProgress(1, 1),
+				ClinicActivityRowGenerator.forPartition(7, 0, ANCHOR), counters);
+
+		assertThat(jdbcTemplate.queryForMap(
+				"SELECT activity_type, numeric_value, event_timestamp, status_flag FROM clinic_activity_logs"))
+			.containsEntry("ACTIVITY_TYPE", expected.getActivityType())
+			.containsEntry("NUMERIC_VALUE", expected.getNumericValue())
+			.containsEntry("EVENT_TIMESTAMP", expected.getEventTimestamp())
+			.containsEntry("STATUS_FLAG", expected.isStatusFlag());
+		assertThat(jdbcTemplate.queryForObject("SELECT payload FROM clinic_activity_logs", String.class))
+			.isEqualTo(expected.getPayload().toString());
+	}
+
+	@Test
+	void shouldStopWhenCancelled() {
+		PopulationProgress progress = new PopulationProgress(1_000, 1);
+		progress.cancel();
+
+		assertThatThrownBy(() -> new ClinicActivityBulkInserter(dataSource, 100, 500).insert(progress,
+				ClinicActivityRowGenerator.forPartition(7, 0, ANCHOR), counters))
+			.isInstanceOf(CancellationException.class);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM clinic_activity_logs", Integer.class)).isZero();
+	}
+
+	@Test
+	void shouldBuildMultiRowInsert() {
+		assertThat(ClinicActivityBulkInserter.insertSql(2)).endsWith("VALUES (?, ?, ?, ?, ?),(?, ?, ?, ?, ?)");
+	}
+
+}
@@ -0,0 +1,131 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.system.OtelConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Test class for {@link ClinicActivityController}
+ */
+@WebMvcTest(ClinicActivityController.class)
+@Import(OtelConfiguration.class)
+@DisabledInNativeImage
+class ClinicActivityControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private ClinicActivityDataService dataService;
+
+	@MockBean
+	private PopulationJobService jobService;
+
+	@MockBean
+	private ClinicActivitySchemaManager schemaManager;
+
+	@MockBean
+	private ClinicActivityQueryService queryService;
+
+	@MockBean
+	private ClinicActivityLogRepository repository;
+
+	@MockBean
+	private ClinicActivityRollupService rollupService;
+
+	@MockBean
+	private ClinicActivitySearchService searchService;
+
+	@MockBean
+	private WorkloadEngine workloadEngine;
+
+	@Test
+	void testPopulateLogsQueuesJob() throws Exception {
+		PopulationJob job = new PopulationJob(null, false, 100, new PopulationOptions(1, ClinicActivityCopyFormat.CSV, null));
+		given(jobService.submit(isNull(), anyBoolean(), anyInt(), any(PopulationOptions.class))).willReturn(job);
+
+		mockMvc.perform(post("/api/clinic-activity/populate-logs").param("count", "100"))
+			.andExpect(status().isAccepted())
+			.andExpect(header().string("Location", "/api/clinic-activity/jobs/" + job.getId()))
+			.andExpect(jsonPath("$.id").value(job.getId()));
+	}
+
+	@Test
+	void testPopulateLogsRejectedWhenQueueIsFull() throws Exception {
+		given(jobService.submit(isNull(), anyBoolean(), anyInt(), any(PopulationOptions.class)))
+			.willThrow(new RejectedExecutionException());
+
+		mockMvc.perform(post("/api/clinic-activity/populate-logs").param("count", "100"))
+			.andExpect(status().isTooManyRequests());
+	}
+
+	@Test
+	void testSearchLogsRejectsHalfAPageKey() throws Exception {
+		given(searchService.getMaxSlices()).willReturn(4);
+
+		mockMvc.perform(get("/api/clinic-activity/logs/search").param("activity_type", "Inventory Check")
+			.param("start", "2024-01-01T00:00:00")
+			.param("end", "2024-02-01T00:00:00")
+			.param("after_id", "42"))
+			.andExpect(status().isBadRequest());
+
+		mockMvc.perform(get("/api/clinic-activity/logs/search").param("activity_type", "Inventory Check")
+			.param("start", "2024-01-01T00:00:00")
+			.param("end", "2024-02-01T00:00:00")
+			.param("after_timestamp", "2024-01-10T00:00:00"))
+			.andExpect(status().isBadRequest());
+		verify(searchService, never()).search(any(), any(), any(), anyInt(), anyBoolean(), anyInt());
+	}
+
+	@Test
+	void testWorkloadEndpointsCapLimitAndQps() throws Exception {
+		mockMvc.perform(post("/api/clinic-activity/workload").param("mix", "sample").param("limit", "2000000000"))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(post("/api/clinic-activity/workload").param("qps", "100000"))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(post("/api/clinic-activity/io-intensive-load").param("limit", "1000001"))
+			.andExpect(status().isBadRequest());
+		verify(workloadEngine, never()).start(any());
+	}
+
+	@Test
+	void testRunSimulatedQueriesConcurrently() throws Exception {
+		mockMvc.perform(get("/api/clinic-activity/run-simulated-queries").param("uniqueQueriesCount", "2")
+			.param("repetitions", "20")
+			.param("concurrency", "4"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.totalOperations").value(40))
+			.andExpect(jsonPath("$.concurrency").value(4))
+			.andExpect(jsonPath("$.latency.count").value(40))
+			.andExpect(jsonPath("$.latencyByType.TypeA.count").value(20))
+			.andExpect(jsonPath("$.latencyByType.TypeB.count").value(20))
+			.andExpect(jsonPath("$.latencyByType.TypeB.p50Millis").isNumber());
+	}
+
+	@Test
+	void testRunSimulatedQueriesRejectsTooMuchConcurrency() throws Exception {
+		mockMvc.perform(get("/api/clinic-activity/run-simulated-queries").param("concurrency", "65"))
+			.andExpect(status().isBadRequest());
+	}
+
+}
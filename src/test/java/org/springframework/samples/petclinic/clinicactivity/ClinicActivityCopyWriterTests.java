@@ -0,0 +1,91 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * Test class for {@link ClinicActivityCopyWriter}
+ */
+class ClinicActivityCopyWriterTests {
+
+	private static final long EVENT_TIMESTAMP = LocalDateTime.of(2023, 7, 4, 9, 5, 30).toEpochSecond(ZoneOffset.UTC);
+
+	private final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+
+	private CopyManager copyManager;
+
+	@BeforeEach
+	void setup() throws Exception {
+		CopyIn copyIn = mock(CopyIn.class);
+		willAnswer(invocation -> {
+			copied.write(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+			return null;
+		}).given(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+		copyManager = mock(CopyManager.class);
+		given(copyManager.copyIn(anyString())).willReturn(copyIn);
+	}
+
+	@Test
+	void shouldWriteQuotedCsvRows() throws Exception {
+		try (ClinicActivityCopyWriter writer = new ClinicActivityCopyWriter(copyManager, ClinicActivityCopyFormat.CSV)) {
+			writer.writeRow("Lab Test Order", 42, EVENT_TIMESTAMP, true, "say \"hi\" \\ caf\u00e9");
+			writer.endCopy();
+		}
+
+		assertThat(copied.toString(StandardCharsets.UTF_8))
+			.isEqualTo("\"Lab Test Order\",42,2023-07-04 09:05:30,true,\"say \"\"hi\"\" \\ caf\u00e9\"\n");
+	}
+
+	@Test
+	void shouldWriteBinaryTuples() throws Exception {
+		try (ClinicActivityCopyWriter writer = new ClinicActivityCopyWriter(copyManager,
+				ClinicActivityCopyFormat.BINARY)) {
+			writer.writeRow("Billing Generation", 7, EVENT_TIMESTAMP, false, "caf\u00e9");
+			writer.endCopy();
+		}
+
+		ByteBuffer data = ByteBuffer.wrap(copied.toByteArray());
+		byte[] signature = new byte[11];
+		data.get(signature);
+		assertThat(signature).isEqualTo(new byte[] { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 });
+		assertThat(data.getInt()).isZero();
+		assertThat(data.getInt()).isZero();
+
+		assertThat(data.getShort()).isEqualTo((short) 5);
+		assertThat(readText(data)).isEqualTo("Billing Generation");
+		assertThat(data.getInt()).isEqualTo(4);
+		assertThat(data.getInt()).isEqualTo(7);
+		assertThat(data.getInt()).isEqualTo(8);
+		long postgresEpoch = LocalDateTime.of(2000, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+		assertThat(data.getLong()).isEqualTo((EVENT_TIMESTAMP - postgresEpoch) * 1_000_000L);
+		assertThat(data.getInt()).isEqualTo(1);
+		assertThat(data.get()).isZero();
+		assertThat(readText(data)).isEqualTo("caf\u00e9");
+
+		assertThat(data.getShort()).isEqualTo((short) -1);
+		assertThat(data.hasRemaining()).isFalse();
+	}
+
+	private static String readText(ByteBuffer data) {
+		byte[] bytes = new byte[data.getInt()];
+		data.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,64 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link ClinicActivityCounters}
+ */
+class ClinicActivityCountersTests {
+
+	private static final String TYPE = ClinicActivityRowGenerator.ACTIVITY_TYPES.get(0);
+
+	@Test
+	void shouldAnswerNothingWhenDisabled() {
+		assertThat(new ClinicActivityCounters(false).snapshot(TYPE, List::of)).isNull();
+	}
+
+	@Test
+	void shouldRebuildWhenStaleAndAddCommittedBatches() {
+		ClinicActivityCounters counters = new ClinicActivityCounters(true);
+		assertThat(counters.snapshot(TYPE, () -> List.of(counts(TYPE, 10, 4)))).containsExactly(10, 4);
+
+		ClinicActivityCounters.Batch batch = new ClinicActivityCounters.Batch();
+		batch.record(0, 1);
+		batch.record(0, ClinicActivityCounters.ACTIVE_THRESHOLD + 1);
+		counters.add(batch);
+
+		assertThat(counters.snapshot(TYPE, List::of)).containsExactly(12, 5);
+		assertThat(counters.snapshot("errors", List::of)).containsExactly(0, 0);
+	}
+
+	@Test
+	void shouldNotRebuildWhileWriting() {
+		ClinicActivityCounters counters = new ClinicActivityCounters(true);
+		counters.beginWrite();
+		assertThat(counters.snapshot(TYPE, List::of)).isNull();
+
+		counters.endWrite();
+		assertThat(counters.snapshot(TYPE, List::of)).containsExactly(0, 0);
+	}
+
+	private static ClinicActivityCounts counts(String type, long total, long active) {
+		return new ClinicActivityCounts() {
+			@Override
+			public String getActivityType() {
+				return type;
+			}
+
+			@Override
+			public long getTotal() {
+				return total;
+			}
+
+			@Override
+			public long getActive() {
+				return active;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,95 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class for {@link ClinicActivityDataService}, run against an in-memory H2 database
+ * behind a small connection pool
+ */
+class ClinicActivityDataServiceTests {
+
+	private static final int POOL_SIZE = 4;
+
+	private HikariDataSource dataSource;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private ClinicActivityCounters counters;
+
+	private ClinicActivityDataService dataService;
+
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	void setup() {
+		dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl("jdbc:h2:mem:data-service;DB_CLOSE_DELAY=-1");
+		dataSource.setMaximumPoolSize(POOL_SIZE);
+		// a worker waiting for a connection fails the test instead of hanging it
+		dataSource.setConnectionTimeout(2_000);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS clinic_activity_logs");
+		jdbcTemplate.execute("CREATE TABLE clinic_activity_logs (id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+				+ "activity_type VARCHAR(255), numeric_value INTEGER, event_timestamp TIMESTAMP, "
+				+ "status_flag BOOLEAN, payload CLOB)");
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		ClinicActivityQueryCache queryCache = new ClinicActivityQueryCache((Cache) null);
+		counters = new ClinicActivityCounters(true);
+		counters.resetAfterCommit();
+		ClinicActivitySchemaManager schemaManager = new ClinicActivitySchemaManager(jdbcTemplate, dataSource, queryCache,
+				counters, "plain");
+		ClinicActivityRollupService rollupService = new ClinicActivityRollupService(jdbcTemplate, schemaManager,
+				transactionManager, false);
+		dataService = new ClinicActivityDataService(mock(ClinicActivityLogRepository.class), dataSource,
+				transactionManager, queryCache, counters, rollupService, schemaManager, 1, 500, 5_000);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@AfterEach
+	void shutdown() {
+		dataSource.close();
+	}
+
+	@Test
+	void shouldInsertPartitionsInParallelInsideTransaction() {
+		AtomicReference<PopulationProgress> progress = new AtomicReference<>();
+
+		// like the @Transactional entry point, the transaction holds one pooled connection
+		transactionTemplate.executeWithoutResult(status -> dataService.populateData(30_000,
+				new PopulationOptions(8, ClinicActivityCopyFormat.CSV, 7L), progress::set));
+
+		// one connection for the transaction and one left for the rest of the app
+		assertThat(progress.get().getPartitionCount()).isEqualTo(POOL_SIZE - 2);
+		assertThat(progress.get().getRowsWritten()).isEqualTo(30_000);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM clinic_activity_logs", Integer.class))
+			.isEqualTo(30_000);
+		assertThat(ClinicActivityRowGenerator.ACTIVITY_TYPES.stream()
+			.mapToLong(type -> counters.snapshot(type, List::of)[0])
+			.sum()).isEqualTo(30_000);
+	}
+
+	@Test
+	void shouldLimitPartitionsByRowCount() {
+		AtomicReference<PopulationProgress> progress = new AtomicReference<>();
+
+		dataService.populateData(15_000, new PopulationOptions(8, ClinicActivityCopyFormat.CSV, 7L), progress::set);
+
+		assertThat(progress.get().getPartitionCount()).isEqualTo(1);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM clinic_activity_logs", Integer.class))
+			.isEqualTo(15_000);
+	}
+
+}
@@ -0,0 +1,112 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Test class for {@link ClinicActivityQueryService}, run against an in-memory H2 database
+ */
+class ClinicActivityQueryServiceTests {
+
+	private ClinicActivityQueryService queryService;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private DataSourceTransactionManager transactionManager;
+
+	private final ConcurrentMapCache queryCache = new ConcurrentMapCache(ClinicActivityQueryCache.CACHE_NAME);
+
+	@BeforeEach
+	void setup() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:query-service;DB_CLOSE_DELAY=-1");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS clinic_activity_logs");
+		jdbcTemplate.execute("CREATE TABLE clinic_activity_logs (id INTEGER PRIMARY KEY, activity_type VARCHAR(255), "
+				+ "numeric_value INTEGER, event_timestamp TIMESTAMP, status_flag BOOLEAN, payload CLOB)");
+		for (int id = 1; id <= 25; id++) {
+			jdbcTemplate.update("INSERT INTO clinic_activity_logs VALUES (?, 'Inventory Check', ?, NULL, TRUE, 'p')", id,
+					id % 2 == 0 ? 50000 : 1);
+		}
+		transactionManager = spy(new DataSourceTransactionManager(dataSource));
+		queryService = new ClinicActivityQueryService(jdbcTemplate, dataSource, transactionManager, new ObjectMapper(),
+				new ClinicActivityQueryCache(queryCache));
+	}
+
+	@Test
+	void shouldWalkAllPagesByKeyset() {
+		ClinicActivityLogPage first = queryService.findPage(50000, null, 5, ClinicActivityQueryService.COLUMNS);
+		assertThat(first.rows()).hasSize(5);
+		assertThat(first.rows().get(0).get("id")).isEqualTo(2);
+		assertThat(first.nextAfterId()).isEqualTo(10);
+
+		ClinicActivityLogPage second = queryService.findPage(50000, first.nextAfterId(), 5, ClinicActivityQueryService.COLUMNS);
+		assertThat(second.rows()).hasSize(5);
+		assertThat(second.rows().get(0).get("id")).isEqualTo(12);
+
+		ClinicActivityLogPage last = queryService.findPage(50000, second.nextAfterId(), 5, ClinicActivityQueryService.COLUMNS);
+		assertThat(last.rows()).hasSize(2);
+		assertThat(last.isHasMore()).isFalse();
+	}
+
+	@Test
+	void shouldStreamOneJsonObjectPerLine() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		queryService.streamLogs(50000, ClinicActivityQueryService.COLUMNS, out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertThat(lines).hasSize(12);
+		assertThat(lines[0]).startsWith("{\"id\":2,\"activity_type\":\"Inventory Check\"").contains("\"payload\":\"p\"");
+	}
+
+	@Test
+	void shouldSelectOnlyRequestedFieldsAndKeepPageKey() {
+		ClinicActivityLogPage page = queryService.findPage(50000, null, 5,
+				ClinicActivityQueryService.parseFields("status_flag, activity_type"));
+
+		assertThat(page.rows().get(0)).containsOnlyKeys("ID", "ACTIVITY_TYPE", "STATUS_FLAG");
+		assertThat(page.nextAfterId()).isEqualTo(10);
+	}
+
+	@Test
+	void shouldRejectUnknownFields() {
+		assertThatIllegalArgumentException().isThrownBy(() -> ClinicActivityQueryService.parseFields("id,secret"))
+			.withMessageContaining("secret");
+	}
+
+	@Test
+	void shouldServeRepeatedQueriesFromCacheUntilInvalidated() {
+		assertThat(queryService.findLogs(50000, ClinicActivityQueryService.COLUMNS)).hasSize(12);
+		jdbcTemplate.update("DELETE FROM clinic_activity_logs WHERE id = 2");
+
+		assertThat(queryService.findLogs(50000, ClinicActivityQueryService.COLUMNS)).hasSize(12);
+
+		new ClinicActivityQueryCache(queryCache).invalidateAll();
+		assertThat(queryService.findLogs(50000, ClinicActivityQueryService.COLUMNS)).hasSize(11);
+	}
+
+	@Test
+	void shouldReadCachedResultsOutsideOfReplicaTransactions() {
+		queryService.findLogs(50000, ClinicActivityQueryService.COLUMNS);
+		queryService.findPage(50000, null, 5, ClinicActivityQueryService.COLUMNS);
+
+		// no replica transaction, so a lagging replica never ends up in the cache
+		verify(transactionManager, never()).getTransaction(any());
+	}
+
+}
@@ -0,0 +1,100 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.samples.petclinic.clinicactivity.ClinicActivityRollupService.Bucket;
+import org.springframework.samples.petclinic.clinicactivity.ClinicActivityRollupService.Granularity;
+
+/**
+ * Test class for {@link ClinicActivityRollupService}, run against an in-memory H2 database
+ */
+class ClinicActivityRollupServiceTests {
+
+	private static final LocalDateTime HOUR = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+	private ClinicActivityRollupService rollupService;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private int nextId = 1;
+
+	@BeforeEach
+	void setup() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:rollups;DB_CLOSE_DELAY=-1");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS clinic_activity_logs");
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + ClinicActivitySchemaManager.ROLLUP_TABLE);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + ClinicActivitySchemaManager.ROLLUP_WATERMARK_TABLE);
+		jdbcTemplate.execute("CREATE TABLE clinic_activity_logs (id INTEGER PRIMARY KEY, activity_type VARCHAR(255), "
+				+ "numeric_value INTEGER, event_timestamp TIMESTAMP, status_flag BOOLEAN, payload CLOB)");
+		ClinicActivitySchemaManager schemaManager = new ClinicActivitySchemaManager(jdbcTemplate, dataSource,
+				new ClinicActivityQueryCache((Cache) null), new ClinicActivityCounters(false), "plain");
+		rollupService = new ClinicActivityRollupService(jdbcTemplate, schemaManager,
+				new DataSourceTransactionManager(dataSource), true);
+	}
+
+	@Test
+	void shouldFoldOnlyNewRowsIntoExistingBuckets() {
+		insertLogs(HOUR.plusMinutes(5), 1, 2, 3);
+		assertThat(rollupService.rollUpNewRows()).isEqualTo(3);
+
+		insertLogs(HOUR.plusMinutes(50), 100000, 4);
+		assertThat(rollupService.rollUpNewRows()).isEqualTo(2);
+		assertThat(rollupService.rollUpNewRows()).isZero();
+
+		List<Bucket> buckets = rollupService.findBuckets(Granularity.HOUR, HOUR, HOUR.plusHours(1), null);
+		assertThat(buckets).hasSize(1);
+		Bucket bucket = buckets.get(0);
+		assertThat(bucket.bucketStart()).isEqualTo(HOUR);
+		assertThat(bucket.count()).isEqualTo(5);
+		assertThat(bucket.activeCount()).isEqualTo(1);
+		assertThat(bucket.min()).isEqualTo(1);
+		assertThat(bucket.max()).isEqualTo(100000);
+		assertThat(bucket.average()).isEqualTo(20002.0);
+	}
+
+	@Test
+	void shouldRebuildRollupsOnRefresh() {
+		insertLogs(HOUR, 10);
+		insertLogs(HOUR.plusHours(2), 20);
+		rollupService.rollUpNewRows();
+		jdbcTemplate.update("DELETE FROM clinic_activity_logs WHERE numeric_value = 20");
+
+		assertThat(rollupService.refresh()).isEqualTo(1);
+
+		List<Bucket> days = rollupService.findBuckets(Granularity.DAY, HOUR.toLocalDate().atStartOfDay(),
+				HOUR.toLocalDate().plusDays(1).atStartOfDay(), "Inventory Check");
+		assertThat(days).hasSize(1);
+		assertThat(days.get(0).count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldInterpolatePercentilesWithinBins() {
+		long[] bins = new long[ClinicActivityRollupService.BIN_COUNT];
+		bins[0] = 50;
+		bins[19] = 50;
+
+		assertThat(ClinicActivityRollupService.percentile(bins, 0.5, 1, 100000)).isEqualTo(4999);
+		assertThat(ClinicActivityRollupService.percentile(bins, 0.99, 1, 100000)).isEqualTo(99900);
+		assertThat(ClinicActivityRollupService.percentile(new long[ClinicActivityRollupService.BIN_COUNT], 0.5, null, null))
+			.isNull();
+	}
+
+	private void insertLogs(LocalDateTime timestamp, int... numericValues) {
+		for (int numericValue : numericValues) {
+			jdbcTemplate.update("INSERT INTO clinic_activity_logs VALUES (?, 'Inventory Check', ?, ?, TRUE, 'p')", nextId++,
+					numericValue, Timestamp.valueOf(timestamp));
+		}
+	}
+
+}
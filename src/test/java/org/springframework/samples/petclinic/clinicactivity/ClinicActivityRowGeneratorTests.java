@@ -0,0 +1,51 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link ClinicActivityRowGenerator}
+ */
+class ClinicActivityRowGeneratorTests {
+
+	private static final long ANCHOR = 1_700_000_000L;
+
+	@Test
+	void shouldGenerateSameRowsForSameSeed() {
+		assertThat(rows(ClinicActivityRowGenerator.forPartition(42, 0, ANCHOR), 100))
+			.isEqualTo(rows(ClinicActivityRowGenerator.forPartition(42, 0, ANCHOR), 100));
+	}
+
+	@Test
+	void shouldGenerateDifferentRowsPerPartition() {
+		assertThat(rows(ClinicActivityRowGenerator.forPartition(42, 0, ANCHOR), 100))
+			.isNotEqualTo(rows(ClinicActivityRowGenerator.forPartition(42, 1, ANCHOR), 100));
+	}
+
+	@Test
+	void shouldKeepValuesWithinFakerRanges() {
+		ClinicActivityRowGenerator generator = new ClinicActivityRowGenerator(7, ANCHOR);
+		for (int i = 0; i < 10_000; i++) {
+			generator.next();
+			assertThat(ClinicActivityRowGenerator.ACTIVITY_TYPES).contains(generator.getActivityType());
+			assertThat(generator.getNumericValue()).isBetween(1, 99_999);
+			assertThat(generator.getEventTimestampSeconds()).isBetween(ANCHOR - 5L * 365 * 86_400, ANCHOR);
+			assertThat(generator.getPayload().toString()).matches("([A-Z][a-z]*( [a-z]+){2,8}\\.)( [A-Z][a-z]*( [a-z]+){2,8}\\.){2,9}");
+		}
+	}
+
+	private static List<String> rows(ClinicActivityRowGenerator generator, int count) {
+		List<String> rows = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			generator.next();
+			rows.add(generator.getActivityType() + '|' + generator.getNumericValue() + '|'
+					+ generator.getEventTimestampSeconds() + '|' + generator.isStatusFlag() + '|' + generator.getPayload());
+		}
+		return rows;
+	}
+
+}
@@ -0,0 +1,148 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Test class for {@link ClinicActivitySchemaManager}, run against an in-memory H2 database
+ */
+class ClinicActivitySchemaManagerTests {
+
+	private static final String TABLE = ClinicActivitySchemaManager.TABLE;
+
+	private static final String STAGING_TABLE = ClinicActivitySchemaManager.STAGING_TABLE;
+
+	private ClinicActivitySchemaManager schemaManager;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private ConcurrentMapCache cache;
+
+	private ClinicActivityCounters counters;
+
+	private int nextId = 1;
+
+	@BeforeEach
+	void setup() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:schema-manager;DB_CLOSE_DELAY=-1");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + STAGING_TABLE);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + ClinicActivitySchemaManager.ROLLUP_TABLE);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + ClinicActivitySchemaManager.ROLLUP_WATERMARK_TABLE);
+		createLogTable(TABLE);
+		cache = new ConcurrentMapCache(ClinicActivityQueryCache.CACHE_NAME);
+		counters = new ClinicActivityCounters(true);
+		schemaManager = new ClinicActivitySchemaManager(jdbcTemplate, dataSource, new ClinicActivityQueryCache(cache),
+				counters, "plain");
+		schemaManager.ensureRollupTables();
+	}
+
+	@Test
+	void shouldTruncateTableAndClearRollups() {
+		insertLogs(TABLE, 3);
+		markRolledUp(3);
+		cache.put("query", "result");
+
+		schemaManager.truncateTable();
+
+		assertThat(countRows(TABLE)).isZero();
+		assertThat(countRows(ClinicActivitySchemaManager.ROLLUP_TABLE)).isZero();
+		assertThat(watermark()).isZero();
+		assertThat(cache.get("query")).isNull();
+		// the counters are zeroed right away instead of being rebuilt from the table
+		assertThat(counters.snapshot("Inventory Check", () -> {
+			throw new AssertionError("counters should not be rebuilt after a truncate");
+		})).containsExactly(0, 0);
+	}
+
+	@Test
+	void shouldSwapStagingTableInForLiveTable() {
+		insertLogs(TABLE, 1);
+		jdbcTemplate.execute("CREATE INDEX " + ClinicActivitySchemaManager.NUMERIC_VALUE_INDEX + " ON " + TABLE
+				+ " (numeric_value)");
+		createLogTable(STAGING_TABLE);
+		insertLogs(STAGING_TABLE, 2);
+		assertThat(schemaManager.createStagingIndexes()).contains(ClinicActivitySchemaManager.NUMERIC_VALUE_INDEX
+				+ ClinicActivitySchemaManager.STAGING_SUFFIX);
+		markRolledUp(1);
+		cache.put("query", "result");
+
+		schemaManager.swapInStaging();
+
+		assertThat(countRows(TABLE)).isEqualTo(2);
+		assertThat(tableExists(STAGING_TABLE)).isFalse();
+		assertThat(tableExists(TABLE + "_retired")).isFalse();
+		// the staging indexes took over the regular names
+		assertThat(schemaManager.createIndexes()).isEmpty();
+		assertThat(countRows(ClinicActivitySchemaManager.ROLLUP_TABLE)).isZero();
+		assertThat(watermark()).isZero();
+		assertThat(cache.get("query")).isNull();
+		// the new table is not empty, so the counters are rebuilt from it
+		AtomicInteger rebuilds = new AtomicInteger();
+		counters.snapshot("Inventory Check", () -> {
+			rebuilds.incrementAndGet();
+			return List.of();
+		});
+		assertThat(rebuilds).hasValue(1);
+	}
+
+	@Test
+	void shouldNotSupportStagingReloadOnH2() {
+		assertThat(schemaManager.supportsStagingReload(ClinicActivitySchemaMode.INDEXED)).isFalse();
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> schemaManager.createStagingTable(ClinicActivitySchemaMode.INDEXED));
+		assertThat(tableExists(STAGING_TABLE)).isFalse();
+	}
+
+	private void createLogTable(String table) {
+		jdbcTemplate.execute("CREATE TABLE " + table + " (id INTEGER PRIMARY KEY, activity_type VARCHAR(255), "
+				+ "numeric_value INTEGER, event_timestamp TIMESTAMP, status_flag BOOLEAN, payload CLOB)");
+	}
+
+	private void insertLogs(String table, int count) {
+		for (int i = 0; i < count; i++) {
+			jdbcTemplate.update("INSERT INTO " + table + " VALUES (?, 'Inventory Check', ?, ?, TRUE, 'p')", nextId,
+					nextId, Timestamp.valueOf(LocalDateTime.of(2024, 3, 1, 10, 0)));
+			nextId++;
+		}
+	}
+
+	private void markRolledUp(int lastLogId) {
+		StringBuilder bins = new StringBuilder();
+		for (int bin = 0; bin < ClinicActivityRollupService.BIN_COUNT; bin++) {
+			bins.append(", 0");
+		}
+		jdbcTemplate.update("INSERT INTO " + ClinicActivitySchemaManager.ROLLUP_TABLE
+				+ " VALUES ('HOUR', ?, 'Inventory Check', 1, 1, 1, 1, 1" + bins + ")",
+				Timestamp.valueOf(LocalDateTime.of(2024, 3, 1, 10, 0)));
+		jdbcTemplate.update("UPDATE " + ClinicActivitySchemaManager.ROLLUP_WATERMARK_TABLE + " SET last_log_id = ?",
+				lastLogId);
+	}
+
+	private int countRows(String table) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+	}
+
+	private long watermark() {
+		return jdbcTemplate.queryForObject(
+				"SELECT last_log_id FROM " + ClinicActivitySchemaManager.ROLLUP_WATERMARK_TABLE, Long.class);
+	}
+
+	private boolean tableExists(String table) {
+		return jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = UPPER(?)", Integer.class, table) > 0;
+	}
+
+}
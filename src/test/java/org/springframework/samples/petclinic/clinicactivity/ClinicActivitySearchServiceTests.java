@@ -0,0 +1,84 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for {@link ClinicActivitySearchService}
+ */
+class ClinicActivitySearchServiceTests {
+
+	private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+	private static final LocalDateTime MIDDLE = START.plusDays(1);
+
+	private static final LocalDateTime END = START.plusDays(2);
+
+	private final ClinicActivityLogRepository repository = mock(ClinicActivityLogRepository.class);
+
+	private ClinicActivitySearchService searchService;
+
+	@BeforeEach
+	void setup() {
+		searchService = new ClinicActivitySearchService(repository, mock(PlatformTransactionManager.class), 4);
+		when(repository.findSummariesByCriteria(anyString(), anyInt(), anyInt(), eq(START), eq(MIDDLE), anyBoolean(),
+				any(), anyInt(), any(Limit.class)))
+			.thenReturn(List.of(summary(1, START.plusHours(1)), summary(2, START.plusHours(2))));
+		when(repository.findSummariesByCriteria(anyString(), anyInt(), anyInt(), eq(MIDDLE), eq(END), anyBoolean(),
+				any(), anyInt(), any(Limit.class)))
+			.thenReturn(List.of(summary(3, MIDDLE.plusHours(1)), summary(4, MIDDLE.plusHours(2))));
+	}
+
+	@AfterEach
+	void shutdown() {
+		searchService.destroy();
+	}
+
+	@Test
+	void shouldMergeParallelSlicesInOrder() {
+		ClinicActivitySearchPage page = searchService.search(criteria(), null, null, 3, false, 2);
+
+		assertThat(page.rows()).extracting(ClinicActivityLogSummary::id).containsExactly(1, 2, 3);
+		assertThat(page.nextAfterId()).isEqualTo(3);
+		assertThat(page.nextAfterTimestamp()).isEqualTo(MIDDLE.plusHours(1));
+	}
+
+	@Test
+	void shouldReportLastPageWhenAllSlicesFit() {
+		ClinicActivitySearchPage page = searchService.search(criteria(), null, null, 10, false, 2);
+
+		assertThat(page.rows()).hasSize(4);
+		assertThat(page.isHasMore()).isFalse();
+	}
+
+	@Test
+	void shouldRejectHalfAPageKey() {
+		assertThatIllegalArgumentException().isThrownBy(() -> searchService.search(criteria(), MIDDLE, null, 10, false, 1));
+		assertThatIllegalArgumentException().isThrownBy(() -> searchService.search(criteria(), null, 3, 10, false, 1));
+	}
+
+	private static ClinicActivityCriteria criteria() {
+		return new ClinicActivityCriteria("Inventory Check", 1, 100000, START, END, true);
+	}
+
+	private static ClinicActivityLogSummary summary(int id, LocalDateTime eventTimestamp) {
+		return new ClinicActivityLogSummary(id, "Inventory Check", 500, eventTimestamp, true);
+	}
+
+}
@@ -0,0 +1,66 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link ClinicActivitySnapshot}
+ */
+class ClinicActivitySnapshotTests {
+
+	private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+	private static final long ALL_FROM = ClinicActivitySnapshot.NO_TIMESTAMP + 1;
+
+	private ClinicActivitySnapshot snapshot;
+
+	@BeforeEach
+	void setup() {
+		// starts below the row count, so the buffers have to grow while loading
+		ClinicActivitySnapshot.Builder builder = new ClinicActivitySnapshot.Builder(0);
+		for (int row = 0; row < 3000; row++) {
+			builder.add(row % 2 == 0 ? "Inventory Check" : "Unknown", row * 30 + 1,
+					ClinicActivitySnapshot.toMicros(START.plusHours(row % 48)), row % 3 == 0);
+		}
+		builder.add(null, 5, ClinicActivitySnapshot.NO_TIMESTAMP, true);
+		snapshot = builder.build(0);
+	}
+
+	@Test
+	void shouldCountRowsByType() {
+		long[] counts = snapshot.countByType(ALL_FROM, Long.MAX_VALUE, null);
+
+		assertThat(counts[ClinicActivityRowGenerator.ACTIVITY_TYPES.indexOf("Inventory Check")]).isEqualTo(1500);
+		assertThat(counts[counts.length - 1]).isEqualTo(1500);
+		assertThat(snapshot.getRows()).isEqualTo(3001);
+	}
+
+	@Test
+	void shouldBuildHistogramOfOneType() {
+		long[] histogram = snapshot.histogram(ALL_FROM, Long.MAX_VALUE,
+				ClinicActivitySnapshot.typeCode("Inventory Check"), 4, 1, 100000);
+
+		assertThat(histogram).containsExactly(417, 417, 416, 250);
+	}
+
+	@Test
+	void shouldCountStatusFlagsPerWindow() {
+		long[][] windows = snapshot.statusByWindow(ClinicActivitySnapshot.toMicros(START),
+				ClinicActivitySnapshot.toMicros(START.plusDays(2)), 86_400_000_000L, ClinicActivitySnapshot.ANY_TYPE);
+
+		assertThat(windows).hasDimensions(2, 2);
+		assertThat(windows[0][0] + windows[1][0]).isEqualTo(3000);
+		assertThat(windows[0][1] + windows[1][1]).isEqualTo(1000);
+	}
+
+	@Test
+	void shouldRejectTypesItDoesNotTrack() {
+		assertThatIllegalArgumentException().isThrownBy(() -> ClinicActivitySnapshot.typeCode("Unknown"));
+	}
+
+}
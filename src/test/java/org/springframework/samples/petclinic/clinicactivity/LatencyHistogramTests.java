@@ -0,0 +1,43 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link LatencyHistogram}
+ */
+class LatencyHistogramTests {
+
+	@Test
+	void shouldReportPercentilesWithinBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int micros = 1; micros <= 100_000; micros++) {
+			histogram.record(micros);
+		}
+
+		assertThat(histogram.getCount()).isEqualTo(100_000);
+		assertThat(histogram.getValueAtQuantile(0.5)).isCloseTo(50_000, within(800L));
+		assertThat(histogram.getValueAtQuantile(0.99)).isCloseTo(99_000, within(1_600L));
+		assertThat(histogram.getValueAtQuantile(0.999)).isEqualTo(100_000);
+		assertThat(histogram.getMeanMicros()).isEqualTo(50_000.5);
+	}
+
+	@Test
+	void shouldPlaceEveryValueInsideItsBucket() {
+		for (long value : new long[] { 0, 127, 128, 129, 255, 256, 1_000, 123_456_789L, Long.MAX_VALUE }) {
+			int index = LatencyHistogram.bucketIndex(value);
+			assertThat(LatencyHistogram.highestValue(index)).isGreaterThanOrEqualTo(value);
+			if (index > 0) {
+				assertThat(LatencyHistogram.highestValue(index - 1)).isLessThan(value);
+			}
+		}
+	}
+
+	@Test
+	void shouldReportZeroWhenEmpty() {
+		assertThat(new LatencyHistogram().getValueAtQuantile(0.99)).isZero();
+	}
+
+}
@@ -0,0 +1,198 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+/**
+ * Test class for {@link PopulationJobService}
+ */
+class PopulationJobServiceTests {
+
+	private static final PopulationOptions OPTIONS = new PopulationOptions(1, ClinicActivityCopyFormat.CSV, 7L);
+
+	private ClinicActivityDataService dataService;
+
+	private ClinicActivitySchemaManager schemaManager;
+
+	private ClinicActivityRollupService rollupService;
+
+	private PopulationJobService jobService;
+
+	private final CountDownLatch started = new CountDownLatch(1);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@BeforeEach
+	void setup() {
+		dataService = mock(ClinicActivityDataService.class);
+		schemaManager = mock(ClinicActivitySchemaManager.class);
+		rollupService = mock(ClinicActivityRollupService.class);
+		jobService = new PopulationJobService(dataService, schemaManager, rollupService, 1, 1);
+	}
+
+	@AfterEach
+	void shutdown() {
+		release.countDown();
+		jobService.destroy();
+	}
+
+	@Test
+	void shouldRunSubmittedJob() throws Exception {
+		PopulationJob job = jobService.submit(null, false, 100, OPTIONS);
+
+		assertThat(job.getId()).isNotBlank();
+		assertThat(jobService.getJob(job.getId())).isSameAs(job);
+		awaitStatus(job, PopulationJob.Status.SUCCEEDED);
+		verify(dataService).populateData(anyInt(), any(PopulationOptions.class), any());
+	}
+
+	@Test
+	void shouldRejectJobWhenQueueIsFull() throws Exception {
+		blockWhilePopulating();
+		PopulationJob running = jobService.submit(null, false, 100, OPTIONS);
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		PopulationJob queued = jobService.submit(null, false, 100, OPTIONS);
+
+		assertThatExceptionOfType(RejectedExecutionException.class)
+			.isThrownBy(() -> jobService.submit(null, false, 100, OPTIONS));
+		assertThat(jobService.getJobs()).containsExactlyInAnyOrder(running, queued);
+	}
+
+	@Test
+	void shouldNeverStartCancelledQueuedJob() throws Exception {
+		blockWhilePopulating();
+		PopulationJob running = jobService.submit(null, false, 100, OPTIONS);
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		PopulationJob queued = jobService.submit(null, false, 100, OPTIONS);
+
+		jobService.cancel(queued.getId());
+		release.countDown();
+
+		awaitStatus(queued, PopulationJob.Status.CANCELLED);
+		awaitStatus(running, PopulationJob.Status.SUCCEEDED);
+		verify(dataService, times(1)).populateData(anyInt(), any(PopulationOptions.class), any());
+	}
+
+	@Test
+	void shouldStopCancelledRunningJob() throws Exception {
+		willAnswer(invocation -> {
+			int totalRows = invocation.getArgument(0);
+			PopulationProgress progress = new PopulationProgress(totalRows, 1);
+			invocation.<Consumer<PopulationProgress>>getArgument(2).accept(progress);
+			started.countDown();
+			while (true) {
+				progress.checkNotCancelled();
+				Thread.sleep(5);
+			}
+		}).given(dataService).populateData(anyInt(), any(PopulationOptions.class), any());
+		PopulationJob running = jobService.submit(null, false, 100, OPTIONS);
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		jobService.cancel(running.getId());
+
+		awaitStatus(running, PopulationJob.Status.CANCELLED);
+		assertThat(running.getError()).isNull();
+	}
+
+	@Test
+	void shouldEvictOldestFinishedJobs() throws Exception {
+		List<PopulationJob> submitted = new ArrayList<>();
+		for (int i = 0; i < PopulationJobService.MAX_RETAINED_JOBS + 5; i++) {
+			PopulationJob job = jobService.submit(null, false, 100, OPTIONS);
+			awaitStatus(job, PopulationJob.Status.SUCCEEDED);
+			submitted.add(job);
+		}
+
+		assertThat(jobService.getJobs()).hasSize(PopulationJobService.MAX_RETAINED_JOBS);
+		assertThat(jobService.getJob(submitted.get(0).getId())).isNull();
+		assertThat(jobService.getJob(submitted.get(submitted.size() - 1).getId())).isNotNull();
+	}
+
+	@Test
+	void shouldReloadThroughStagingTable() throws Exception {
+		given(schemaManager.supportsStagingReload(ClinicActivitySchemaMode.INDEXED)).willReturn(true);
+		given(rollupService.isEnabled()).willReturn(true);
+
+		PopulationJob job = jobService.submit(ClinicActivitySchemaMode.INDEXED, true, 100, OPTIONS);
+
+		awaitStatus(job, PopulationJob.Status.SUCCEEDED);
+		InOrder order = inOrder(schemaManager, dataService, rollupService);
+		order.verify(schemaManager).createStagingTable(ClinicActivitySchemaMode.INDEXED);
+		order.verify(dataService)
+			.populateData(eq(ClinicActivitySchemaManager.STAGING_TABLE), eq(100), any(PopulationOptions.class), any());
+		order.verify(schemaManager).createStagingIndexes();
+		order.verify(schemaManager).swapInStaging();
+		order.verify(rollupService).refresh();
+		verify(schemaManager, never()).recreateTable(any());
+		verify(schemaManager, never()).dropStagingTable();
+	}
+
+	@Test
+	void shouldDropStagingTableWhenReloadFails() throws Exception {
+		given(schemaManager.supportsStagingReload(ClinicActivitySchemaMode.PLAIN)).willReturn(true);
+		willThrow(new IllegalStateException("copy failed")).given(dataService)
+			.populateData(eq(ClinicActivitySchemaManager.STAGING_TABLE), anyInt(), any(PopulationOptions.class), any());
+
+		PopulationJob job = jobService.submit(ClinicActivitySchemaMode.PLAIN, true, 100, OPTIONS);
+
+		awaitStatus(job, PopulationJob.Status.FAILED);
+		assertThat(job.getError()).isEqualTo("copy failed");
+		verify(schemaManager).dropStagingTable();
+		verify(schemaManager, never()).swapInStaging();
+	}
+
+	@Test
+	void shouldRecreateTableWhenStagingReloadIsUnsupported() throws Exception {
+		given(schemaManager.supportsStagingReload(ClinicActivitySchemaMode.INDEXED)).willReturn(false);
+
+		PopulationJob job = jobService.submit(ClinicActivitySchemaMode.INDEXED, true, 100, OPTIONS);
+
+		awaitStatus(job, PopulationJob.Status.SUCCEEDED);
+		InOrder order = inOrder(schemaManager, dataService);
+		order.verify(schemaManager).recreateTable(ClinicActivitySchemaMode.INDEXED);
+		order.verify(dataService).populateData(eq(100), any(PopulationOptions.class), any());
+		order.verify(schemaManager).createIndexes();
+		verify(schemaManager, never()).createStagingTable(any());
+		verify(schemaManager, never()).swapInStaging();
+	}
+
+	private void blockWhilePopulating() {
+		willAnswer(invocation -> {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return null;
+		}).given(dataService).populateData(anyInt(), any(PopulationOptions.class), any());
+	}
+
+	private static void awaitStatus(PopulationJob job, PopulationJob.Status status) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (job.getStatus() != status && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(job.getStatus()).isEqualTo(status);
+	}
+
+}
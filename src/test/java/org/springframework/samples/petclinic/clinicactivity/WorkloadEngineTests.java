@@ -0,0 +1,108 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+/**
+ * Test class for {@link WorkloadEngine}, run against an in-memory H2 database behind a
+ * one-connection pool
+ */
+class WorkloadEngineTests {
+
+	private HikariDataSource dataSource;
+
+	private WorkloadEngine engine;
+
+	@BeforeEach
+	void setup() {
+		dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl("jdbc:h2:mem:workload;DB_CLOSE_DELAY=-1");
+		dataSource.setMaximumPoolSize(1);
+		dataSource.setConnectionTimeout(10_000);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS clinic_activity_logs");
+		jdbcTemplate.execute("CREATE TABLE clinic_activity_logs (id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+				+ "activity_type VARCHAR(255), numeric_value INTEGER, event_timestamp TIMESTAMP, "
+				+ "status_flag BOOLEAN, payload CLOB)");
+		ClinicActivitySchemaManager schemaManager = mock(ClinicActivitySchemaManager.class);
+		given(schemaManager.getDatabaseProductName()).willReturn("H2");
+		engine = new WorkloadEngine(dataSource, new DataSourceTransactionManager(dataSource), schemaManager, 10);
+	}
+
+	@AfterEach
+	void shutdown() {
+		engine.destroy();
+		dataSource.close();
+	}
+
+	@Test
+	void shouldDropArrivalsBeyondMaxInFlightAndStopEarly() throws Exception {
+		WorkloadRun run;
+		// holding the only pooled connection keeps the first query waiting
+		try (Connection held = dataSource.getConnection()) {
+			run = engine.start(new WorkloadSpec(200, Duration.ofSeconds(30), 1, Map.of(WorkloadQuery.POINT, 1), 10, null));
+			Thread.sleep(200);
+
+			assertThat(run.getInFlight()).isEqualTo(1);
+			assertThat(run.getDropped()).isPositive();
+			assertThat(engine.stop()).isSameAs(run);
+		}
+		awaitFinished(run);
+
+		assertThat(run.getStatus()).isEqualTo(WorkloadRun.Status.STOPPED);
+		assertThat(run.getCompleted()).isEqualTo(1);
+		assertThat(run.getErrors()).isZero();
+		assertThat(run.getScheduled()).isEqualTo(run.getDropped() + 1);
+		assertThat(engine.stop()).isNull();
+	}
+
+	@Test
+	void shouldRunMixUntilDurationEnds() throws Exception {
+		Map<WorkloadQuery, Integer> mix = new EnumMap<>(WorkloadQuery.class);
+		mix.put(WorkloadQuery.POINT, WorkloadSpec.MAX_WEIGHT);
+		mix.put(WorkloadQuery.AGGREGATE, 1);
+		WorkloadRun run = engine.start(new WorkloadSpec(100, Duration.ofMillis(300), 5, mix, 10, null));
+
+		awaitFinished(run);
+
+		assertThat(run.getStatus()).isEqualTo(WorkloadRun.Status.SUCCEEDED);
+		assertThat(run.getCompleted() + run.getDropped() + run.getErrors()).isEqualTo(run.getScheduled());
+		assertThat(run.getErrors()).isZero();
+	}
+
+	@Test
+	void shouldPickQueriesByCumulativeWeight() {
+		Map<WorkloadQuery, Integer> mix = new EnumMap<>(WorkloadQuery.class);
+		mix.put(WorkloadQuery.POINT, 2);
+		mix.put(WorkloadQuery.RANGE, 3);
+		WorkloadEngine.WeightedMix weighted = new WorkloadEngine.WeightedMix(mix);
+
+		assertThat(weighted.totalWeight()).isEqualTo(5);
+		assertThat(weighted.pick(0)).isEqualTo(WorkloadQuery.POINT);
+		assertThat(weighted.pick(1)).isEqualTo(WorkloadQuery.POINT);
+		assertThat(weighted.pick(2)).isEqualTo(WorkloadQuery.RANGE);
+		assertThat(weighted.pick(4)).isEqualTo(WorkloadQuery.RANGE);
+	}
+
+	private static void awaitFinished(WorkloadRun run) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (run.getStatus() == WorkloadRun.Status.RUNNING && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+}
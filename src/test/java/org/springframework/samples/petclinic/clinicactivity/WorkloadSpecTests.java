@@ -0,0 +1,59 @@
+package org.springframework.samples.petclinic.clinicactivity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link WorkloadSpec}
+ */
+class WorkloadSpecTests {
+
+	@Test
+	void shouldParseMixWithDefaultAndRepeatedWeights() {
+		assertThat(WorkloadSpec.parseMix(" point:5, range ,point:2,,SAMPLE:1"))
+			.containsExactlyInAnyOrderEntriesOf(Map.of(WorkloadQuery.POINT, 7, WorkloadQuery.RANGE, 1,
+					WorkloadQuery.SAMPLE, 1));
+	}
+
+	@Test
+	void shouldRejectInvalidMixEntries() {
+		assertThatIllegalArgumentException().isThrownBy(() -> WorkloadSpec.parseMix("point:x"));
+		assertThatIllegalArgumentException().isThrownBy(() -> WorkloadSpec.parseMix("scan:1"));
+	}
+
+	@Test
+	void shouldRejectZeroAndNegativeWeights() {
+		assertThatIllegalArgumentException().isThrownBy(() -> WorkloadSpec.parseMix("point:0"));
+		assertThatIllegalArgumentException().isThrownBy(() -> WorkloadSpec.parseMix("point:-1"));
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> new WorkloadSpec(1, Duration.ofSeconds(1), 1, Map.of(WorkloadQuery.POINT, 0), 1, null));
+	}
+
+	@Test
+	void shouldCapQpsAndLimit() {
+		Map<WorkloadQuery, Integer> mix = Map.of(WorkloadQuery.SAMPLE, 1);
+		assertThat(new WorkloadSpec(WorkloadSpec.MAX_QPS, Duration.ofSeconds(1), 1, mix, WorkloadSpec.MAX_LIMIT, null)
+			.limit()).isEqualTo(WorkloadSpec.MAX_LIMIT);
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> new WorkloadSpec(WorkloadSpec.MAX_QPS + 1, Duration.ofSeconds(1), 1, mix, 1, null));
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> new WorkloadSpec(Double.NaN, Duration.ofSeconds(1), 1, mix, 1, null));
+		assertThatIllegalArgumentException().isThrownBy(
+				() -> new WorkloadSpec(1, Duration.ofSeconds(1), 1, mix, WorkloadSpec.MAX_LIMIT + 1, null));
+	}
+
+	@Test
+	void shouldRejectHugeWeights() {
+		assertThat(WorkloadSpec.parseMix("point:" + WorkloadSpec.MAX_WEIGHT)).containsEntry(WorkloadQuery.POINT,
+				WorkloadSpec.MAX_WEIGHT);
+		assertThatIllegalArgumentException().isThrownBy(() -> WorkloadSpec.parseMix("point:2000000000"));
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> WorkloadSpec.parseMix("point:" + WorkloadSpec.MAX_WEIGHT + ",point:1"));
+	}
+
+}
@@ -0,0 +1,136 @@
+package org.springframework.samples.petclinic.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link OwnerValidation#ValidateUserAccessAsync}
+ */
+class OwnerValidationTests {
+
+	private UserValidationService usrValSvc;
+
+	private PasswordUtils pwdUtils;
+
+	private RoleService roleSvc;
+
+	private TwoFactorAuthenticationService twoFASvc;
+
+	private ExecutorService executor;
+
+	private OwnerValidation validation;
+
+	@BeforeEach
+	void setup() {
+		usrValSvc = mock(UserValidationService.class);
+		pwdUtils = mock(PasswordUtils.class);
+		roleSvc = mock(RoleService.class);
+		twoFASvc = mock(TwoFactorAuthenticationService.class);
+		given(usrValSvc.vldtUsr(anyString())).willReturn(true);
+		given(pwdUtils.vldtPswd(anyString(), anyString())).willReturn(true);
+		given(roleSvc.vldtUsrRole(anyString(), anyString())).willReturn(true);
+		given(twoFASvc.init2FA(anyString())).willReturn(true);
+		given(twoFASvc.getTokenInput()).willReturn("");
+		given(twoFASvc.vldtToken(anyString(), anyString())).willReturn(true);
+		executor = Executors.newFixedThreadPool(4);
+		validation = new OwnerValidation(OpenTelemetry.noop().getTracer("test"), usrValSvc, pwdUtils, roleSvc,
+				twoFASvc, executor);
+	}
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void shouldGrantAccessWhenAllStepsPass() {
+		assertThat(validation.ValidateUserAccess("admin", "pwd", "fullaccess")).isTrue();
+		verify(twoFASvc).vldtToken("admin", "");
+	}
+
+	@Test
+	void shouldFailWithoutWaitingForSlowerSteps() throws Exception {
+		given(usrValSvc.vldtUsr(anyString())).willReturn(false);
+		willAnswer(invocation -> {
+			Thread.sleep(800);
+			return true;
+		}).given(roleSvc).vldtUsrRole(anyString(), anyString());
+
+		long start = System.nanoTime();
+		boolean valid = validation.ValidateUserAccessAsync("admin", "pwd", "fullaccess").get(5, TimeUnit.SECONDS);
+
+		assertThat(valid).isFalse();
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(500);
+	}
+
+	@Test
+	void shouldFailStepThatTakesLongerThanOneSecond() throws Exception {
+		willAnswer(invocation -> {
+			Thread.sleep(3000);
+			return true;
+		}).given(pwdUtils).vldtPswd(anyString(), anyString());
+
+		long start = System.nanoTime();
+		boolean valid = validation.ValidateUserAccessAsync("admin", "pwd", "fullaccess").get(5, TimeUnit.SECONDS);
+
+		assertThat(valid).isFalse();
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isBetween(1000L, 2500L);
+	}
+
+	@Test
+	void shouldNotCountQueuedTimeAgainstStepTimeout() {
+		ExecutorService singleThread = Executors.newSingleThreadExecutor();
+		try {
+			OwnerValidation queued = new OwnerValidation(OpenTelemetry.noop().getTracer("test"), usrValSvc, pwdUtils,
+					roleSvc, twoFASvc, singleThread);
+			willAnswer(invocation -> {
+				Thread.sleep(700);
+				return true;
+			}).given(usrValSvc).vldtUsr(anyString());
+			willAnswer(invocation -> {
+				Thread.sleep(700);
+				return true;
+			}).given(pwdUtils).vldtPswd(anyString(), anyString());
+
+			// the password check waits 700 ms for the thread, then runs for another 700 ms
+			assertThat(queued.ValidateUserAccess("admin", "pwd", "fullaccess")).isTrue();
+		}
+		finally {
+			singleThread.shutdownNow();
+		}
+	}
+
+	@Test
+	void shouldFailStepsRejectedByExecutor() {
+		executor.shutdown();
+
+		assertThat(validation.ValidateUserAccess("admin", "pwd", "fullaccess")).isFalse();
+		verify(usrValSvc, never()).vldtUsr(anyString());
+		verify(twoFASvc, never()).init2FA(anyString());
+	}
+
+	@Test
+	void shouldSkipTokenWhenTwoFactorInitFails() {
+		given(twoFASvc.init2FA(anyString())).willReturn(false);
+
+		assertThat(validation.ValidateUserAccess("admin", "pwd", "fullaccess")).isFalse();
+		verify(twoFASvc, never()).getTokenInput();
+		verify(twoFASvc, never()).vldtToken(any(), any());
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for {@link OwnerCache}
+ */
+class OwnerCacheTests {
+
+	private static final int TEST_OWNER_ID = 1;
+
+	private OwnerRepository owners;
+
+	private PlatformTransactionManager transactionManager;
+
+	private OwnerCache ownerCache;
+
+	@BeforeEach
+	void setup() {
+		Owner george = new Owner();
+		george.setId(TEST_OWNER_ID);
+		george.setLastName("Franklin");
+		Pet max = new Pet();
+		max.setName("Max");
+		george.addPet(max);
+		max.setId(1);
+		owners = mock(OwnerRepository.class);
+		given(owners.findDetailsById(TEST_OWNER_ID)).willReturn(george);
+		given(owners.findOwnerById(TEST_OWNER_ID)).willReturn(george);
+		transactionManager = mock(PlatformTransactionManager.class);
+		ownerCache = new OwnerCache(owners, transactionManager, new ConcurrentMapCache("owners"));
+	}
+
+	@Test
+	void shouldLoadOwnerOnlyOnce() {
+		Owner first = ownerCache.findById(TEST_OWNER_ID);
+		Owner second = ownerCache.findById(TEST_OWNER_ID);
+
+		assertThat(second.getLastName()).isEqualTo("Franklin");
+		assertThat(second.getPet("Max")).isNotNull();
+		verify(owners, times(1)).findDetailsById(TEST_OWNER_ID);
+		assertThat(second).isNotSameAs(first);
+	}
+
+	@Test
+	void shouldLoadMissesFromPrimary() {
+		ownerCache.findById(TEST_OWNER_ID);
+		ownerCache.findOwnerById(TEST_OWNER_ID);
+
+		// read-only transactions may be routed to a replica that lags behind
+		verify(transactionManager, times(2)).getTransaction(argThat(definition -> !definition.isReadOnly()));
+	}
+
+	@Test
+	void shouldNotShareChangesOfReturnedCopies() {
+		ownerCache.findById(TEST_OWNER_ID).setLastName("Changed");
+
+		assertThat(ownerCache.findById(TEST_OWNER_ID).getLastName()).isEqualTo("Franklin");
+	}
+
+	@Test
+	void shouldEvictOwnerOnSave() {
+		Owner owner = ownerCache.findById(TEST_OWNER_ID);
+
+		ownerCache.save(owner);
+		ownerCache.findById(TEST_OWNER_ID);
+
+		verify(owners).save(owner);
+		verify(owners, times(2)).findDetailsById(TEST_OWNER_ID);
+	}
+
+	@Test
+	void shouldLoadOwnerOnlyWithoutCachingIt() {
+		assertThat(ownerCache.findCachedById(TEST_OWNER_ID)).isNull();
+		assertThat(ownerCache.findOwnerById(TEST_OWNER_ID).getLastName()).isEqualTo("Franklin");
+		assertThat(ownerCache.findCachedById(TEST_OWNER_ID)).isNull();
+
+		ownerCache.findById(TEST_OWNER_ID);
+
+		assertThat(ownerCache.findCachedById(TEST_OWNER_ID).getPet("Max")).isNotNull();
+		verify(owners, times(1)).findOwnerById(TEST_OWNER_ID);
+	}
+
+	@Test
+	void shouldNotCacheUnknownOwners() {
+		assertThat(ownerCache.findById(42)).isNull();
+		assertThat(ownerCache.findById(42)).isNull();
+
+		verify(owners, times(2)).findDetailsById(42);
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.samples.petclinic.domain.OwnerValidation;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Test class for the {@code slice} paging of {@link OwnerController}
+ */
+@WebMvcTest(controllers = OwnerController.class, properties = "petclinic.owner-search.paging=slice")
+@Import({ OwnerLoader.class, OwnerValidation.class })
+@DisabledInNativeImage
+class OwnerControllerSlicePagingTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private OwnerRepository owners;
+
+	@MockBean
+	private OwnerCache ownerCache;
+
+	@MockBean
+	private OwnerLastNameIndex lastNameIndex;
+
+	@MockBean
+	private OwnerCounts ownerCounts;
+
+	@MockBean
+	private OwnerPetLookupService petLookup;
+
+	static List<Owner> owners(int firstId, int count) {
+		List<Owner> owners = new ArrayList<>();
+		for (int id = firstId; id < firstId + count; id++) {
+			Owner owner = new Owner();
+			owner.setId(id);
+			owner.setFirstName("Owner");
+			owner.setLastName("Number" + id);
+			owners.add(owner);
+		}
+		return owners;
+	}
+
+	@Test
+	void testListLinksToNextPageWithoutTotal() throws Exception {
+		given(this.owners.findSliceByLastName("", PageRequest.of(1, 5)))
+			.willReturn(new SliceImpl<>(owners(6, 5), PageRequest.of(1, 5), true));
+
+		mockMvc.perform(get("/owners?page=2"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("hasNext", true))
+			.andExpect(model().attributeDoesNotExist("totalPages", "totalItems"))
+			.andExpect(content().string(containsString("Page 2")))
+			.andExpect(content().string(containsString("/owners?page=3")))
+			.andExpect(content().string(not(containsString("Pages:"))))
+			.andExpect(view().name("owners/ownersList"));
+		verify(this.owners, never()).findByLastName(anyString(), any(Pageable.class));
+		verify(this.owners, never()).countByLastName(anyString());
+	}
+
+	@Test
+	void testLastPageHasNoNextLink() throws Exception {
+		given(this.owners.findSliceByLastName("", PageRequest.of(1, 5)))
+			.willReturn(new SliceImpl<>(owners(6, 2), PageRequest.of(1, 5), false));
+
+		mockMvc.perform(get("/owners?page=2"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("hasNext", false))
+			.andExpect(content().string(containsString("/owners?page=1")))
+			.andExpect(content().string(not(containsString("/owners?page=3"))))
+			.andExpect(view().name("owners/ownersList"));
+	}
+
+	@Test
+	void testSingleOwnerRedirects() throws Exception {
+		given(this.owners.findSliceByLastName(eq("Number1"), any(Pageable.class)))
+			.willReturn(new SliceImpl<>(owners(1, 1), PageRequest.of(0, 5), false));
+
+		mockMvc.perform(get("/owners?page=1").param("lastName", "Number1"))
+			.andExpect(status().is3xxRedirection())
+			.andExpect(view().name("redirect:/owners/1"));
+	}
+
+	@Test
+	void testSingleOwnerOnLaterPageIsListed() throws Exception {
+		given(this.owners.findSliceByLastName("", PageRequest.of(1, 5)))
+			.willReturn(new SliceImpl<>(owners(6, 1), PageRequest.of(1, 5), false));
+
+		mockMvc.perform(get("/owners?page=2")).andExpect(status().isOk()).andExpect(view().name("owners/ownersList"));
+	}
+
+}
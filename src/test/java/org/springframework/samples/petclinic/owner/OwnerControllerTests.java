@@ -24,14 +24,19 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 import org.assertj.core.util.Lists;
 import org.hamcrest.BaseMatcher;
@@ -43,9 +48,11 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.samples.petclinic.domain.OwnerValidation;
 import org.springframework.test.web.servlet.MockMvc;
 
 /**
@@ -54,6 +61,7 @@ import org.springframework.test.web.servlet.MockMvc;
  * @author Colin But
  */
 @WebMvcTest(OwnerController.class)
+@Import({ OwnerLoader.class, OwnerValidation.class })
 @DisabledInNativeImage
 class OwnerControllerTests {
 
@@ -65,6 +73,18 @@ class OwnerControllerTests {
 	@MockBean
 	private OwnerRepository owners;
 
+	@MockBean
+	private OwnerCache ownerCache;
+
+	@MockBean
+	private OwnerLastNameIndex lastNameIndex;
+
+	@MockBean
+	private OwnerCounts ownerCounts;
+
+	@MockBean
+	private OwnerPetLookupService petLookup;
+
 	private Owner george() {
 		Owner george = new Owner();
 		george.setId(TEST_OWNER_ID);
@@ -93,7 +113,8 @@ class OwnerControllerTests {
 
 		given(this.owners.findAll(any(Pageable.class))).willReturn(new PageImpl<Owner>(Lists.newArrayList(george)));
 
-		given(this.owners.findById(TEST_OWNER_ID)).willReturn(george);
+		given(this.ownerCache.findById(TEST_OWNER_ID)).willReturn(george);
+		given(this.ownerCache.findOwnerById(TEST_OWNER_ID)).willReturn(george);
 		Visit visit = new Visit();
 		visit.setDate(LocalDate.now());
 		george.getPet("Max").getVisits().add(visit);
@@ -154,6 +175,17 @@ class OwnerControllerTests {
 			.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
 	}
 
+	@Test
+	void testProcessFindFormWithLastNameIndex() throws Exception {
+		given(this.lastNameIndex.isEnabled()).willReturn(true);
+		given(this.lastNameIndex.findOwnerIds(eq("fran"), any(Pageable.class)))
+			.willReturn(new PageImpl<>(List.of(TEST_OWNER_ID)));
+		given(this.owners.findByIdIn(List.of(TEST_OWNER_ID))).willReturn(List.of(george()));
+		mockMvc.perform(get("/owners?page=1").param("lastName", "fran"))
+			.andExpect(status().is3xxRedirection())
+			.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
+	}
+
 	@Test
 	void testProcessFindFormNoOwnersFound() throws Exception {
 		Page<Owner> tasks = new PageImpl<Owner>(Lists.newArrayList());
@@ -179,6 +211,14 @@ class OwnerControllerTests {
 			.andExpect(view().name("owners/createOrUpdateOwnerForm"));
 	}
 
+	@Test
+	void testInitUpdateOwnerFormLoadsOnlyTheOwner() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}/edit", TEST_OWNER_ID)).andExpect(status().isOk());
+
+		verify(this.ownerCache).findOwnerById(TEST_OWNER_ID);
+		verify(this.ownerCache, never()).findById(TEST_OWNER_ID);
+	}
+
 	@Test
 	void testProcessUpdateOwnerFormSuccess() throws Exception {
 		mockMvc
@@ -243,4 +283,28 @@ class OwnerControllerTests {
 			.andExpect(view().name("owners/ownerDetails"));
 	}
 
+	@Test
+	void testGetPetsOfOwners() throws Exception {
+		given(this.petLookup.findPetsByOwnerIds(List.of(1, 2)))
+			.willReturn(Map.of(1, List.of(new OwnerPetLookupService.OwnerPet(1, "Max")), 2, List.of()));
+		mockMvc.perform(get("/owners/pets").param("ids", "1,2,1"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.1[0].name").value("Max"))
+			.andExpect(jsonPath("$.2").isEmpty());
+	}
+
+	@Test
+	void testSuggestLastNames() throws Exception {
+		given(this.lastNameIndex.suggest("fr", 10)).willReturn(List.of("Franklin"));
+		mockMvc.perform(get("/owners/suggest").param("q", "fr"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0]").value("Franklin"));
+	}
+
+	@Test
+	void testOwnerLoadedOncePerRequest() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID)).andExpect(status().isOk());
+
+		verify(this.ownerCache, times(1)).findById(TEST_OWNER_ID);
+	}
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+/**
+ * Test class for {@link OwnerCounts}
+ */
+class OwnerCountsTests {
+
+	private OwnerRepository owners;
+
+	private OwnerCounts ownerCounts;
+
+	@BeforeEach
+	void setup() {
+		owners = mock(OwnerRepository.class);
+		given(owners.countByLastName("Da")).willReturn(2L);
+		ownerCounts = new OwnerCounts(owners, new ConcurrentMapCache("ownerCounts"));
+	}
+
+	@Test
+	void shouldCountOnlyOnce() {
+		assertThat(ownerCounts.countByLastName("Da")).isEqualTo(2);
+		assertThat(ownerCounts.countByLastName("Da")).isEqualTo(2);
+
+		verify(owners, times(1)).countByLastName("Da");
+	}
+
+	@Test
+	void shouldCountAgainAfterClear() {
+		ownerCounts.countByLastName("Da");
+		ownerCounts.clear();
+		ownerCounts.countByLastName("Da");
+
+		verify(owners, times(2)).countByLastName("Da");
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Test class for {@link OwnerLastNameIndex}
+ */
+class OwnerLastNameIndexTests {
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private OwnerLastNameIndex index;
+
+	@BeforeEach
+	void setup() {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+			.generateUniqueName(true)
+			.addScripts("db/h2/schema.sql", "db/h2/data.sql")
+			.build();
+		jdbcTemplate = new JdbcTemplate(database);
+		index = new OwnerLastNameIndex(jdbcTemplate, true, Duration.ofMinutes(10));
+	}
+
+	@AfterEach
+	void shutdown() {
+		database.shutdown();
+	}
+
+	@Test
+	void shouldSuggestLastNamesIgnoringCase() {
+		assertThat(index.suggest("e", 10)).containsExactly("Escobito", "Estaban");
+		assertThat(index.suggest(" DA", 10)).containsExactly("Davis");
+		assertThat(index.suggest("", 3)).hasSize(3);
+		assertThat(index.suggest("x", 10)).isEmpty();
+	}
+
+	@Test
+	void shouldPageThroughOwnerIds() {
+		Page<Integer> all = index.findOwnerIds("", PageRequest.of(0, 5));
+		Page<Integer> davis = index.findOwnerIds("davis", PageRequest.of(0, 5));
+		Page<Integer> secondDavis = index.findOwnerIds("davis", PageRequest.of(1, 1));
+
+		assertThat(all.getContent()).hasSize(5);
+		assertThat(all.getTotalElements()).isEqualTo(10);
+		assertThat(davis.getContent()).containsExactly(2, 4);
+		assertThat(secondDavis.getContent()).containsExactly(4);
+		assertThat(secondDavis.getTotalElements()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldMoveOwnerWhoseLastNameChanged() {
+		index.suggest("", 1);
+		Owner owner = new Owner();
+		owner.setId(1);
+		owner.setLastName("Franke");
+		index.update(owner);
+		Owner added = new Owner();
+		added.setId(11);
+		added.setLastName("frank");
+		index.update(added);
+
+		assertThat(index.suggest("fr", 10)).containsExactly("frank", "Franke");
+		assertThat(index.findOwnerIds("franklin", PageRequest.of(0, 5))).isEmpty();
+	}
+
+	@Test
+	void shouldPickUpOwnersWrittenElsewhereOnceStale() {
+		OwnerLastNameIndex expiring = new OwnerLastNameIndex(jdbcTemplate, true, Duration.ZERO);
+		assertThat(index.suggest("z", 10)).isEmpty();
+		assertThat(expiring.suggest("z", 10)).isEmpty();
+
+		jdbcTemplate.update("INSERT INTO owners (first_name, last_name, address, city, telephone) "
+				+ "VALUES ('Zoe', 'Zimmer', '1 Main St.', 'Madison', '6085551234')");
+
+		assertThat(index.suggest("z", 10)).isEmpty();
+		assertThat(expiring.suggest("z", 10)).containsExactly("Zimmer");
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.web.servlet.MockMvc;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Test class for {@link OwnerLoader}, counting the SQL statements of whole requests to the
+ * pet edit form with Hibernate statistics. The form has two model attributes that both
+ * need the owner.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class OwnerLoaderTests {
+
+	private static final String PET_EDIT_FORM = "/owners/{ownerId}/pets/{petId}/edit";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setup() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		cacheManager.getCache(OwnerCache.CACHE_NAME).clear();
+		statistics.clear();
+	}
+
+	@Test
+	void cacheMissLoadsTheOwnerOnce() throws Exception {
+		mockMvc.perform(get(PET_EDIT_FORM, 6, 7))
+			.andExpect(status().isOk())
+			.andExpect(model().attributeExists("owner", "pet"));
+
+		// pet types, owner with pets and types, visits of both pets
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+	}
+
+	@Test
+	void cacheHitLoadsNoOwner() throws Exception {
+		mockMvc.perform(get(PET_EDIT_FORM, 6, 7)).andExpect(status().isOk());
+		statistics.clear();
+
+		mockMvc.perform(get(PET_EDIT_FORM, 6, 7)).andExpect(status().isOk());
+
+		// pet types only
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+}
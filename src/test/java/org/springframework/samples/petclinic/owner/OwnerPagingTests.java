@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link OwnerPaging}
+ */
+class OwnerPagingTests {
+
+	@Test
+	void shouldParsePagingProperty() {
+		assertThat(OwnerPaging.fromProperty(" cached-count")).isEqualTo(OwnerPaging.CACHED_COUNT);
+		assertThat(OwnerPaging.fromProperty("Slice")).isEqualTo(OwnerPaging.SLICE);
+		assertThat(OwnerPaging.fromProperty("page")).isEqualTo(OwnerPaging.PAGE);
+	}
+
+	@Test
+	void shouldRejectUnknownPaging() {
+		assertThatIllegalArgumentException().isThrownBy(() -> OwnerPaging.fromProperty("offset"));
+	}
+
+}
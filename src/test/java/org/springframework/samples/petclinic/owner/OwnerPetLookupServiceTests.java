@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Test class for {@link OwnerPetLookupService}
+ */
+class OwnerPetLookupServiceTests {
+
+	private EmbeddedDatabase database;
+
+	private OwnerPetLookupService petLookup;
+
+	@BeforeEach
+	void setup() {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+			.generateUniqueName(true)
+			.addScripts("db/h2/schema.sql", "db/h2/data.sql")
+			.build();
+		petLookup = new OwnerPetLookupService(new JdbcTemplate(database));
+	}
+
+	@AfterEach
+	void shutdown() {
+		database.shutdown();
+	}
+
+	@Test
+	void shouldGroupPetsOfSeveralOwners() {
+		Map<Integer, List<OwnerPetLookupService.OwnerPet>> pets = petLookup.findPetsByOwnerIds(List.of(6, 1, 999));
+
+		assertThat(pets).containsOnlyKeys(1, 6);
+		assertThat(pets.get(1)).extracting(OwnerPetLookupService.OwnerPet::name).containsExactly("Leo");
+		assertThat(pets.get(6)).extracting(OwnerPetLookupService.OwnerPet::name).containsExactly("Samantha", "Max");
+	}
+
+	@Test
+	void shouldMapOwnersWithoutPetsToEmptyList() {
+		new JdbcTemplate(database).update("INSERT INTO owners VALUES (default, 'Jane', 'Doe', '1 Main St.', 'Madison', '6085550000')");
+		int ownerId = new JdbcTemplate(database).queryForObject("SELECT MAX(id) FROM owners", Integer.class);
+
+		assertThat(petLookup.findPetsByOwnerIds(List.of(ownerId))).containsEntry(ownerId, List.of());
+		assertThat(petLookup.findPetsByOwnerId(999)).isEmpty();
+	}
+
+	@Test
+	void shouldRejectTooManyOwnerIds() {
+		List<Integer> ownerIds = IntStream.rangeClosed(1, OwnerPetLookupService.MAX_OWNER_IDS + 1).boxed().toList();
+
+		assertThatIllegalArgumentException().isThrownBy(() -> petLookup.findPetsByOwnerIds(ownerIds));
+	}
+
+}
@@ -17,6 +17,8 @@
 package org.springframework.samples.petclinic.owner;
 
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
@@ -29,6 +31,7 @@ import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
 /**
@@ -37,6 +40,7 @@ import org.springframework.test.web.servlet.MockMvc;
  * @author Colin But
  */
 @WebMvcTest(VisitController.class)
+@Import(OwnerLoader.class)
 @DisabledInNativeImage
 class VisitControllerTests {
 
@@ -48,7 +52,13 @@ class VisitControllerTests {
 	private MockMvc mockMvc;
 
 	@MockBean
-	private OwnerRepository owners;
+	private OwnerCache ownerCache;
+
+	@MockBean
+	private OwnerLastNameIndex lastNameIndex;
+
+	@MockBean
+	private OwnerCounts ownerCounts;
 
 	@BeforeEach
 	void init() {
@@ -56,7 +66,7 @@ class VisitControllerTests {
 		Pet pet = new Pet();
 		owner.addPet(pet);
 		pet.setId(TEST_PET_ID);
-		given(this.owners.findById(TEST_OWNER_ID)).willReturn(owner);
+		given(this.ownerCache.findById(TEST_OWNER_ID)).willReturn(owner);
 	}
 
 	@Test
@@ -86,4 +96,11 @@ class VisitControllerTests {
 			.andExpect(view().name("pets/createOrUpdateVisitForm"));
 	}
 
+	@Test
+	void testOwnerLoadedOncePerRequest() throws Exception {
+		mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, TEST_PET_ID)
+			.param("description", "Visit Description")).andExpect(status().is3xxRedirection());
+
+		verify(this.ownerCache, times(1)).findById(TEST_OWNER_ID);
+	}
 }
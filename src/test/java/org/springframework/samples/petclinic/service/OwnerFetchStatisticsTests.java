@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.Pet;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Counts the SQL statements the owner pages need, using Hibernate statistics. Each test
+ * starts from an empty persistence context, like a new request.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+class OwnerFetchStatisticsTests {
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setup() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		entityManager.clear();
+		statistics.clear();
+	}
+
+	@Test
+	void listViewLoadsPetsOfThePageInOneQuery() {
+		Page<Owner> page = this.owners.findByLastName("", PageRequest.of(0, 5));
+		for (Owner owner : page) {
+			owner.getPets().forEach(Pet::getName);
+		}
+
+		// owners, count, pets of all five owners
+		assertThat(page.getContent()).hasSize(5);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+	}
+
+	@Test
+	void detailViewLoadsPetsAndVisitsInTwoQueries() {
+		Owner owner = this.owners.findDetailsById(6);
+		long visits = owner.getPets().stream().mapToLong(pet -> pet.getVisits().size()).sum();
+		owner.getPets().forEach(pet -> pet.getType().getName());
+
+		assertThat(owner.getPets()).hasSize(2);
+		assertThat(visits).isEqualTo(4);
+		// owner with pets and types, visits of both pets
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	@Test
+	void editFormLoadsOnlyTheOwner() {
+		Owner owner = this.owners.findOwnerById(1);
+
+		assertThat(owner.getLastName()).isEqualTo("Franklin");
+		assertThat(Hibernate.isInitialized(owner.getPets())).isFalse();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class for {@link ReadWriteRoutingDataSource}
+ */
+class ReadWriteRoutingDataSourceTests {
+
+	private JdbcTemplate jdbcTemplate;
+
+	private DataSourceTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	void setup() {
+		ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(database("primary"),
+				database("replica"));
+		routingDataSource.afterPropertiesSet();
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionManager = new DataSourceTransactionManager(dataSource);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	private static DataSource database(String name) {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS server (name VARCHAR(20))");
+		jdbcTemplate.execute("DELETE FROM server");
+		jdbcTemplate.update("INSERT INTO server VALUES (?)", name);
+		return dataSource;
+	}
+
+	@Test
+	void shouldRouteMarkedReadOnlyTransactionsToTheReplica() {
+		TransactionTemplate replicaTransaction = ReadReplica.transactionTemplate(transactionManager);
+
+		assertThat(replicaTransaction.execute(status -> serverName())).isEqualTo("replica");
+	}
+
+	@Test
+	void shouldRouteOtherReadOnlyTransactionsToThePrimary() {
+		transactionTemplate.setReadOnly(true);
+
+		assertThat(transactionTemplate.execute(status -> serverName())).isEqualTo("primary");
+	}
+
+	@Test
+	void shouldKeepMarkedTransactionsInsideReadWriteOnesOnThePrimary() {
+		TransactionTemplate replicaTransaction = ReadReplica.transactionTemplate(transactionManager);
+
+		assertThat(transactionTemplate.execute(status -> replicaTransaction.execute(inner -> serverName())))
+			.isEqualTo("primary");
+	}
+
+	@Test
+	void shouldRouteReadWriteTransactionsToThePrimary() {
+		assertThat(transactionTemplate.execute(status -> serverName())).isEqualTo("primary");
+	}
+
+	@Test
+	void shouldRouteAccessOutsideTransactionsToThePrimary() {
+		assertThat(serverName()).isEqualTo("primary");
+	}
+
+	private String serverName() {
+		return jdbcTemplate.queryForObject("SELECT name FROM server", String.class);
+	}
+
+}